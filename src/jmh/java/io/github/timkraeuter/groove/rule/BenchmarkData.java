@@ -0,0 +1,105 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.graph.GrooveGraph;
+import io.github.timkraeuter.groove.graph.GrooveGraphBuilder;
+import io.github.timkraeuter.groove.graph.GrooveNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Creates rules and graphs of configurable size for the benchmarks. Seeded to be repeatable. */
+final class BenchmarkData {
+  private static final long SEED = 42;
+  private static final int NODE_TYPES = 10;
+
+  private BenchmarkData() {
+    // Helper methods.
+  }
+
+  /**
+   * Build rules. The nodes of each rule are evenly distributed over all aspects.
+   *
+   * @param ruleCount number of rules.
+   * @param nodesPerRule number of nodes per rule.
+   * @param edgeDensity number of edges per node.
+   * @return built rules.
+   */
+  static List<GrooveGraphRule> createRules(int ruleCount, int nodesPerRule, double edgeDensity) {
+    Random random = new Random(SEED);
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder();
+    List<GrooveGraphRule> rules = new ArrayList<>(ruleCount);
+    for (int i = 0; i < ruleCount; i++) {
+      rules.add(createRule(ruleBuilder, "rule" + i, nodesPerRule, edgeDensity, random));
+    }
+    return rules;
+  }
+
+  private static GrooveGraphRule createRule(
+      GrooveRuleBuilder ruleBuilder,
+      String ruleName,
+      int nodeCount,
+      double edgeDensity,
+      Random random) {
+    ruleBuilder.startRule(ruleName);
+    List<GrooveNode> nodes = new ArrayList<>(nodeCount);
+    List<NodeRuleAspect> aspects = new ArrayList<>(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      NodeRuleAspect aspect = NodeRuleAspect.values()[i % NodeRuleAspect.values().length];
+      String nodeName = "Type" + random.nextInt(NODE_TYPES);
+      GrooveNode node =
+          switch (aspect) {
+            case ADD -> ruleBuilder.addNode(nodeName);
+            case CONTEXT -> ruleBuilder.contextNode(nodeName);
+            case DEL -> ruleBuilder.deleteNode(nodeName);
+            case NOT -> ruleBuilder.nacNode(nodeName);
+          };
+      nodes.add(node);
+      aspects.add(aspect);
+    }
+    long edgeCount = Math.round(nodeCount * edgeDensity);
+    for (int i = 0; i < edgeCount; i++) {
+      int source = random.nextInt(nodeCount);
+      int target = random.nextInt(nodeCount);
+      String edgeName = "edge" + random.nextInt(NODE_TYPES);
+      if (isPresentAfterwards(aspects.get(source)) && isPresentAfterwards(aspects.get(target))) {
+        ruleBuilder.addEdge(edgeName, nodes.get(source), nodes.get(target));
+      } else {
+        ruleBuilder.contextEdge(edgeName, nodes.get(source), nodes.get(target));
+      }
+    }
+    return ruleBuilder.buildRule();
+  }
+
+  private static boolean isPresentAfterwards(NodeRuleAspect aspect) {
+    return aspect == NodeRuleAspect.ADD || aspect == NodeRuleAspect.CONTEXT;
+  }
+
+  /**
+   * Build a graph.
+   *
+   * @param nodeCount number of nodes.
+   * @param edgeDensity number of edges per node.
+   * @return built graph.
+   */
+  static GrooveGraph createGraph(int nodeCount, double edgeDensity) {
+    Random random = new Random(SEED);
+    GrooveGraphBuilder graphBuilder = new GrooveGraphBuilder().name("start");
+    List<GrooveNode> nodes = new ArrayList<>(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      GrooveNode node = new GrooveNode("Type" + random.nextInt(NODE_TYPES));
+      if (i % 10 == 0) {
+        node.addAttribute("index", i);
+      }
+      graphBuilder.addNode(node);
+      nodes.add(node);
+    }
+    long edgeCount = Math.round(nodeCount * edgeDensity);
+    for (int i = 0; i < edgeCount; i++) {
+      graphBuilder.addEdge(
+          "edge" + random.nextInt(NODE_TYPES),
+          nodes.get(random.nextInt(nodeCount)),
+          nodes.get(random.nextInt(nodeCount)));
+    }
+    return graphBuilder.build();
+  }
+}
@@ -0,0 +1,104 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.graph.GrooveGraph;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.file.PathUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures writing rules and start graphs to disk using the {@link GrooveRuleAndGraphWriter}. Each
+ * benchmark only uses the parameters of the states it depends on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GrooveWriterBenchmark {
+
+  /** Writer options and the target directory. */
+  @State(Scope.Benchmark)
+  public static class Output {
+    @Param({"false", "true"})
+    boolean layout;
+
+    @Param({"JAXB", "STAX"})
+    GxlWriterBackend backend;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    Path targetDir;
+
+    @Setup
+    public void setUp() throws IOException {
+      targetDir = Files.createTempDirectory("grg-benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      PathUtils.deleteDirectory(targetDir);
+    }
+
+    GrooveWriterOptions options() {
+      return new GrooveWriterOptions().layout(layout).backend(backend).parallelism(parallelism);
+    }
+  }
+
+  /** Rules to write. */
+  @State(Scope.Benchmark)
+  public static class Rules {
+    @Param({"100", "1000"})
+    int ruleCount;
+
+    @Param({"10", "100"})
+    int nodesPerRule;
+
+    @Param({"1.0", "3.0"})
+    double edgeDensity;
+
+    List<GrooveGraphRule> rules;
+
+    @Setup
+    public void setUp() {
+      rules = BenchmarkData.createRules(ruleCount, nodesPerRule, edgeDensity);
+    }
+  }
+
+  /** Start graph to write. */
+  @State(Scope.Benchmark)
+  public static class StartGraph {
+    @Param({"1000", "5000"})
+    int startGraphSize;
+
+    @Param({"1.0"})
+    double edgeDensity;
+
+    GrooveGraph graph;
+
+    @Setup
+    public void setUp() {
+      graph = BenchmarkData.createGraph(startGraphSize, edgeDensity);
+    }
+  }
+
+  @Benchmark
+  public void writeRules(Rules rules, Output output) {
+    GrooveRuleAndGraphWriter.writeRules(output.targetDir, rules.rules.stream(), output.options());
+  }
+
+  @Benchmark
+  public void writeStartGraph(StartGraph startGraph, Output output) {
+    GrooveRuleAndGraphWriter.writeGraph(
+        output.targetDir, "start.gst", startGraph.graph, output.options());
+  }
+}
@@ -0,0 +1,64 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.gxl.Gxl;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures converting a single rule to gxl and marshalling it without file system access, once
+ * using the JAXB object model and once streaming using StAX.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GxlWriterBenchmark {
+
+  @Param({"10", "100", "1000"})
+  int nodesPerRule;
+
+  @Param({"1.0", "3.0"})
+  double edgeDensity;
+
+  @Param({"PRETTY", "COMPACT"})
+  GxlOutputFormat format;
+
+  private GrooveGraphRule rule;
+
+  @Setup
+  public void setUp() {
+    rule = BenchmarkData.createRules(1, nodesPerRule, edgeDensity).get(0);
+    GrooveRuleAndGraphWriter.warmUp();
+  }
+
+  @Benchmark
+  public Gxl convertToJaxbModel() {
+    GxlTreeBuilder treeBuilder = new GxlTreeBuilder(rule.getRuleName(), null);
+    GrooveRuleAndGraphWriter.emitRule(rule, treeBuilder);
+    return treeBuilder.getGxl();
+  }
+
+  @Benchmark
+  public String convertAndMarshalJaxb() {
+    return GxlToXMLConverter.toXml(convertToJaxbModel(), format);
+  }
+
+  @Benchmark
+  public void streamStax() throws Exception {
+    Writer writer = new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+    GxlStreamWriter streamWriter = new GxlStreamWriter(writer, rule.getRuleName(), null, format);
+    streamWriter.startDocument();
+    GrooveRuleAndGraphWriter.emitRule(rule, streamWriter);
+    streamWriter.endDocument();
+  }
+}
@@ -0,0 +1,39 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures the ELK layout of a single rule. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LayoutBenchmark {
+
+  @Param({"10", "100", "500"})
+  int nodesPerRule;
+
+  @Param({"1.0", "3.0"})
+  double edgeDensity;
+
+  private GrooveGraphRule rule;
+
+  @Setup
+  public void setUp() {
+    rule = BenchmarkData.createRules(1, nodesPerRule, edgeDensity).get(0);
+  }
+
+  @Benchmark
+  public GxlLayout layoutRule() {
+    GxlLayout layout = new GxlLayout();
+    GrooveRuleAndGraphWriter.emitRule(rule, layout);
+    layout.compute();
+    return layout;
+  }
+}
@@ -0,0 +1,32 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures building rules using the {@link GrooveRuleBuilder}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RuleBuilderBenchmark {
+
+  @Param({"100", "1000"})
+  int ruleCount;
+
+  @Param({"10", "100", "1000"})
+  int nodesPerRule;
+
+  @Param({"1.0", "3.0"})
+  double edgeDensity;
+
+  @Benchmark
+  public List<GrooveGraphRule> buildRules() {
+    return BenchmarkData.createRules(ruleCount, nodesPerRule, edgeDensity);
+  }
+}
@@ -1,17 +1,34 @@
 package io.github.timkraeuter.groove;
 
 import io.github.timkraeuter.groove.graph.GrooveGraphBuilder;
+import io.github.timkraeuter.groove.graph.GrooveIdContext;
+import io.github.timkraeuter.groove.rule.GrooveDirectorySink;
+import io.github.timkraeuter.groove.rule.GrooveLayoutCache;
+import io.github.timkraeuter.groove.rule.GrooveManifest;
+import io.github.timkraeuter.groove.rule.GrooveOutputSink;
 import io.github.timkraeuter.groove.rule.GrooveRuleAndGraphWriter;
 import io.github.timkraeuter.groove.rule.GrooveRuleBuilder;
+import io.github.timkraeuter.groove.rule.GrooveRuleDeduplicator;
+import io.github.timkraeuter.groove.rule.GrooveWriterOptions;
+import io.github.timkraeuter.groove.rule.GrooveZipSink;
+import io.github.timkraeuter.groove.rule.GxlOutputFormat;
+import io.github.timkraeuter.groove.rule.GxlWriterBackend;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.commons.io.file.PathUtils;
 
 /**
@@ -21,21 +38,45 @@ import org.apache.commons.io.file.PathUtils;
 public class GrooveGTSBuilder {
   static final String START_GST = "start.gst";
   static final String START = "start";
+  static final String SYSTEM_PROPERTIES = "system.properties";
+
+  /** Earliest time supported by zip entries. */
+  private static final LocalDateTime REPRODUCIBLE_ARCHIVE_ENTRY_TIME =
+      LocalDateTime.of(1980, 1, 1, 0, 0);
 
   private final GrooveGraphBuilder startGraphBuilder;
   private final GrooveRuleBuilder ruleBuilder;
-  private boolean layout;
+  private final GrooveWriterOptions writerOptions;
   private final Map<String, String> additionalProperties;
 
   private String name;
+  private boolean incremental;
+  private boolean reproducible;
+  private LocalDateTime timestamp;
+  private WriteThroughTarget writeThroughTarget;
 
-  /** Create a new GTS builder. */
+  /** Create a new GTS builder using the global id context. */
   public GrooveGTSBuilder() {
-    this.startGraphBuilder = new GrooveGraphBuilder();
-    this.ruleBuilder = new GrooveRuleBuilder();
+    this(GrooveIdContext.global());
+  }
+
+  /**
+   * Create a new GTS builder. The start graph and rule builder use the given id context, i.e., GTS
+   * builders with their own contexts can be used concurrently and create the same ids in every
+   * run.
+   *
+   * @param idContext context allocating the ids of nodes and edges.
+   */
+  public GrooveGTSBuilder(GrooveIdContext idContext) {
+    this.startGraphBuilder = new GrooveGraphBuilder(idContext);
+    this.ruleBuilder = new GrooveRuleBuilder(idContext);
     this.additionalProperties = new LinkedHashMap<>();
-    this.layout = false;
+    this.writerOptions = new GrooveWriterOptions();
     name = "";
+    incremental = false;
+    reproducible = false;
+    timestamp = null;
+    writeThroughTarget = null;
   }
 
   /**
@@ -86,30 +127,384 @@ public class GrooveGTSBuilder {
    * @return the builder.
    */
   public GrooveGTSBuilder layout(boolean layout) {
-    this.layout = layout;
+    this.writerOptions.layout(layout);
+    return this;
+  }
+
+  /**
+   * Set the backend used to write the start graph and rules.
+   *
+   * @param backend writer backend.
+   * @return the builder.
+   */
+  public GrooveGTSBuilder backend(GxlWriterBackend backend) {
+    this.writerOptions.backend(backend);
+    return this;
+  }
+
+  /**
+   * Set the format of the written start graph and rules, for example, compact for production and
+   * pretty for debugging.
+   *
+   * @param format output format.
+   * @return the builder.
+   */
+  public GrooveGTSBuilder format(GxlOutputFormat format) {
+    this.writerOptions.format(format);
+    return this;
+  }
+
+  /**
+   * Set the number of rules which are written concurrently. Rules are written one after another
+   * if the parallelism is 1 (default).
+   *
+   * @param parallelism number of rules written concurrently (at least 1).
+   * @return the builder.
+   */
+  public GrooveGTSBuilder parallelism(int parallelism) {
+    this.writerOptions.parallelism(parallelism);
+    return this;
+  }
+
+  /**
+   * Set the number of rules which are layouted concurrently while the rules are written one after
+   * another. Also the number of connected components layouted concurrently, see {@link
+   * #layoutComponentsSeparately(boolean)}.
+   *
+   * @param layoutParallelism number of rules layouted concurrently (at least 1).
+   * @return the builder.
+   */
+  public GrooveGTSBuilder layoutParallelism(int layoutParallelism) {
+    this.writerOptions.layoutParallelism(layoutParallelism);
+    return this;
+  }
+
+  /**
+   * Set the cache used to reuse the layouts of rules and graphs with the same shape.
+   *
+   * @param layoutCache layout cache or null if layouts should not be cached.
+   * @return the builder.
+   */
+  public GrooveGTSBuilder layoutCache(GrooveLayoutCache layoutCache) {
+    this.writerOptions.layoutCache(layoutCache);
+    return this;
+  }
+
+  /**
+   * Set the maximum number of nodes of the start graph and rules which are layouted using ELK.
+   * Larger graphs get a fast grid layout instead.
+   *
+   * @param layoutSizeThreshold maximum number of nodes layouted using ELK (at least 0).
+   * @return the builder.
+   */
+  public GrooveGTSBuilder layoutSizeThreshold(int layoutSizeThreshold) {
+    this.writerOptions.layoutSizeThreshold(layoutSizeThreshold);
+    return this;
+  }
+
+  /**
+   * Set the time budget for the ELK layout of the start graph and each rule. Once it is used up,
+   * the fast grid layout is used instead. Connected components layouted separately share the
+   * budget of their graph or rule. The budget is only enforced between the layout phases of ELK.
+   *
+   * @param layoutTimeBudget time budget or null for no limit (default).
+   * @return the builder.
+   */
+  public GrooveGTSBuilder layoutTimeBudget(Duration layoutTimeBudget) {
+    this.writerOptions.layoutTimeBudget(layoutTimeBudget);
+    return this;
+  }
+
+  /**
+   * Set if the connected components of the start graph and rules are layouted separately. They are
+   * layouted concurrently if the layout parallelism is greater than 1.
+   *
+   * @param layoutComponentsSeparately true if connected components are layouted separately.
+   * @return the builder.
+   */
+  public GrooveGTSBuilder layoutComponentsSeparately(boolean layoutComponentsSeparately) {
+    this.writerOptions.layoutComponentsSeparately(layoutComponentsSeparately);
+    return this;
+  }
+
+  /**
+   * Set the executor used to write rules concurrently. If no executor is set, a temporary thread
+   * pool is used.
+   *
+   * @param executor executor or null to use a temporary thread pool.
+   * @return the builder.
+   */
+  public GrooveGTSBuilder executor(Executor executor) {
+    this.writerOptions.executor(executor);
+    return this;
+  }
+
+  /**
+   * Set the deduplicator used to skip rules which are identical to another rule up to their names
+   * and node ids, for example, synced rules with the same effect. Groove then has fewer rules to
+   * match in each state. The names of the skipped rules can be retrieved from the deduplicator
+   * after writing.
+   *
+   * @param ruleDeduplicator rule deduplicator or null to write all rules (default).
+   * @return the builder.
+   */
+  public GrooveGTSBuilder ruleDeduplicator(GrooveRuleDeduplicator ruleDeduplicator) {
+    this.writerOptions.ruleDeduplicator(ruleDeduplicator);
+    return this;
+  }
+
+  /**
+   * Set if the GTS is written incrementally. Then, {@link #writeGTS(Path)} only writes the start
+   * graph and rules which changed since the last incremental write and deletes the files of removed
+   * rules, instead of cleaning the GTS folder. Changes are detected using content hashes stored in
+   * a manifest file ({@value GrooveManifest#FILE_NAME}) in the GTS folder. Nodes should be created
+   * using an own id context, see {@link #GrooveGTSBuilder(GrooveIdContext)}, such that unchanged
+   * rules get the same ids.
+   *
+   * @param incremental true if the GTS is written incrementally.
+   * @return the builder.
+   */
+  public GrooveGTSBuilder incremental(boolean incremental) {
+    this.incremental = incremental;
+    return this;
+  }
+
+  /**
+   * Set if the written GTS is reproducible, i.e., writing the same start graph and rules results in
+   * byte-identical files. Then, the nodes of each file are numbered starting from 0, and the
+   * properties file only contains a timestamp if one is set using {@link
+   * #timestamp(LocalDateTime)}.
+   *
+   * @param reproducible true if the written GTS is reproducible.
+   * @return the builder.
+   */
+  public GrooveGTSBuilder reproducible(boolean reproducible) {
+    this.reproducible = reproducible;
+    this.writerOptions.reproducible(reproducible);
+    return this;
+  }
+
+  /**
+   * Set the timestamp written to the properties file instead of the current time.
+   *
+   * @param timestamp fixed timestamp or null to use the current time.
+   * @return the builder.
+   */
+  public GrooveGTSBuilder timestamp(LocalDateTime timestamp) {
+    this.timestamp = timestamp;
     return this;
   }
 
   /**
    * Writes the GTS to the specified dir. This includes start graph, rules and the properties file.
+   * The start graph and the properties file are written concurrently to the rules. The method
+   * returns once all files are written.
    *
    * @param targetDir target directory.
    * @return dir to the generated GTS
    */
   public Path writeGTS(Path targetDir) {
+    WriteThroughTarget target = this.writeThroughTarget;
+    this.writeThroughTarget = null;
+    Path dir;
+    GrooveWriterOptions options;
+    if (target == null) {
+      dir = makeSubFolder(this.name, targetDir);
+      options = writerOptions.copy().manifest(incremental ? GrooveManifest.load(dir) : null);
+    } else {
+      // The folder was already prepared and must not be cleaned, since it contains the rules.
+      dir = target.dir();
+      options = target.options();
+      if (!dir.equals(getGTSFolder(this.name, targetDir))) {
+        ruleBuilder.awaitWrittenRules();
+        throw new IllegalArgumentException(
+            String.format("The rules were written through to %s instead!", dir));
+      }
+    }
+    GrooveManifest manifest = options.getManifest();
+
+    // Own threads for the stages, since a configured rule executor might be busy writing rules.
+    ExecutorService stageExecutor = Executors.newFixedThreadPool(2);
+    try {
+      CompletableFuture<Void> startGraph =
+          CompletableFuture.runAsync(() -> writeStartGraph(dir, options), stageExecutor);
+      CompletableFuture<Void> propertiesFile =
+          CompletableFuture.runAsync(() -> writePropertiesFile(dir), stageExecutor);
+      RuntimeException rulesFailure = null;
+      try {
+        if (target != null) {
+          ruleBuilder.awaitWrittenRules();
+        }
+        // Rules built without write-through.
+        if (target == null || ruleBuilder.getRules().findAny().isPresent()) {
+          writeRules(dir, options);
+        }
+      } catch (RuntimeException e) {
+        rulesFailure = e;
+      }
+      throwIfAnyStageFailed(dir, getFailure(startGraph), getFailure(propertiesFile), rulesFailure);
+    } finally {
+      stageExecutor.shutdown();
+    }
+    // Only after a successful write, otherwise the next write compares against the old manifest.
+    if (manifest != null) {
+      manifest.deleteOrphans();
+      manifest.save();
+    }
+
+    return dir;
+  }
+
+  /**
+   * Write the rules to the GTS folder in the target directory as soon as they are built, see {@link
+   * GrooveRuleBuilder#writeThrough(GrooveOutputSink, GrooveWriterOptions)}. Rules built before are
+   * written first. The GTS folder is prepared like in {@link #writeGTS(Path)}, i.e., cleaned unless
+   * the GTS is written incrementally. Once all rules are built, call {@link #writeGTS(Path)} with
+   * the same target directory, which waits until the rules are written and writes the start graph
+   * and properties file without cleaning the folder again.
+   *
+   * @param targetDir target directory.
+   * @return dir of the GTS.
+   */
+  public Path writeRulesThrough(Path targetDir) {
+    checkNoRulesWrittenThrough();
     Path dir = makeSubFolder(this.name, targetDir);
+    GrooveWriterOptions options =
+        writerOptions.copy().manifest(incremental ? GrooveManifest.load(dir) : null);
+    ruleBuilder.writeThrough(new GrooveDirectorySink(dir), options);
+    this.writeThroughTarget = new WriteThroughTarget(dir, options);
+    return dir;
+  }
 
-    writeStartGraph(dir);
+  private void checkNoRulesWrittenThrough() {
+    if (this.writeThroughTarget != null) {
+      throw new IllegalStateException(
+          String.format(
+              "The rules are written through to %s, complete the GTS using writeGTS(Path)!",
+              this.writeThroughTarget.dir()));
+    }
+  }
 
-    writePropertiesFile(dir);
+  /**
+   * Writes the GTS as a zip archive ({@code <name>.gps.zip}) to the specified dir. The archive
+   * contains the GTS folder with the properties file, start graph, and rules, which are written one
+   * after another to a single stream. Groove can load the GTS once the archive is extracted. Only
+   * rules written concurrently (see {@link #parallelism(int)}) are added in the order they finish,
+   * unless the GTS is {@link #reproducible(boolean)}. Then, the rules are only layouted
+   * concurrently and added in order. The GTS is always written completely, i.e., incremental
+   * writing does not apply to archives.
+   *
+   * @param targetDir target directory.
+   * @return path to the written archive.
+   */
+  public Path writeGTSArchive(Path targetDir) {
+    checkNoRulesWrittenThrough();
+    Path archive = Paths.get(targetDir.toString(), this.name + ".gps.zip");
+    boolean written = false;
+    try {
+      try (GrooveZipSink sink =
+          new GrooveZipSink(
+              Files.newOutputStream(archive), this.name + ".gps/", getArchiveEntryTime())) {
+        writeGTS(sink, getArchiveOptions());
+      }
+      written = true;
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(
+          String.format("The GTS archive %s could not be written.", archive), e);
+    } finally {
+      if (!written) {
+        deleteIncompleteArchive(archive);
+      }
+    }
+    return archive;
+  }
 
-    writeRules(dir);
+  /**
+   * Writes the GTS to a sink, for example, to memory. The properties file, start graph, and rules
+   * are written one after another, such that sinks writing one file at a time receive them in this
+   * order. The file names are relative to the GTS folder. The GTS is always written completely,
+   * i.e., incremental writing does not apply to sinks.
+   *
+   * @param sink sink to write the GTS to.
+   */
+  public void writeGTS(GrooveOutputSink sink) {
+    checkNoRulesWrittenThrough();
+    writeGTS(sink, writerOptions);
+  }
 
-    return dir;
+  private void writeGTS(GrooveOutputSink sink, GrooveWriterOptions options) {
+    writePropertiesFile(sink);
+    startGraphBuilder.build().write(sink, START_GST, options);
+    GrooveRuleAndGraphWriter.writeRules(sink, ruleBuilder.getRules(), options);
+  }
+
+  private GrooveWriterOptions getArchiveOptions() {
+    if (!reproducible || writerOptions.getParallelism() == 1) {
+      return writerOptions;
+    }
+    // Rules written concurrently are added in the order they finish, while rules layouted
+    // concurrently are still written in stream order.
+    return writerOptions
+        .copy()
+        .layoutParallelism(
+            Math.max(writerOptions.getParallelism(), writerOptions.getLayoutParallelism()))
+        .parallelism(1);
+  }
+
+  private LocalDateTime getArchiveEntryTime() {
+    if (this.timestamp == null && reproducible) {
+      return REPRODUCIBLE_ARCHIVE_ENTRY_TIME;
+    }
+    return this.timestamp;
+  }
+
+  private static void deleteIncompleteArchive(Path archive) {
+    try {
+      Files.deleteIfExists(archive);
+    } catch (IOException e) {
+      // The original failure is more relevant.
+    }
+  }
+
+  private static Throwable getFailure(CompletableFuture<Void> stage) {
+    try {
+      stage.join();
+      return null;
+    } catch (CompletionException e) {
+      return e.getCause();
+    }
+  }
+
+  private static void throwIfAnyStageFailed(Path dir, Throwable... stageFailures) {
+    ShouldNotHappenRuntimeException exception = null;
+    for (Throwable stageFailure : stageFailures) {
+      if (stageFailure == null) {
+        continue;
+      }
+      if (exception == null) {
+        exception =
+            new ShouldNotHappenRuntimeException(
+                String.format("The GTS %s could not be written completely.", dir),
+                stageFailure instanceof Exception e ? e : new RuntimeException(stageFailure));
+      } else {
+        exception.addSuppressed(stageFailure);
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  private static Path getGTSFolder(String folderName, Path targetDir) {
+    return Paths.get(targetDir.toString(), folderName + ".gps");
   }
 
   private Path makeSubFolder(String folderName, Path targetDir) {
-    Path graphGrammarSubFolder = Paths.get(targetDir.toString(), folderName + ".gps");
+    Path graphGrammarSubFolder = getGTSFolder(folderName, targetDir);
+    // Folders without a manifest were not written incrementally and might contain other files.
+    if (incremental && GrooveManifest.exists(graphGrammarSubFolder)) {
+      return graphGrammarSubFolder;
+    }
     createEmptyDir(graphGrammarSubFolder);
     return graphGrammarSubFolder;
   }
@@ -135,7 +530,20 @@ public class GrooveGTSBuilder {
    * @param targetDir target directory
    */
   public void writeRules(Path targetDir) {
-    GrooveRuleAndGraphWriter.writeRules(targetDir, ruleBuilder.getRules(), layout);
+    writeRules(targetDir, writerOptions);
+  }
+
+  private void writeRules(Path targetDir, GrooveWriterOptions options) {
+    GrooveRuleAndGraphWriter.writeRules(targetDir, ruleBuilder.getRules(), options);
+  }
+
+  /**
+   * Write rules to a sink.
+   *
+   * @param sink sink, for example, a directory or memory.
+   */
+  public void writeRules(GrooveOutputSink sink) {
+    GrooveRuleAndGraphWriter.writeRules(sink, ruleBuilder.getRules(), writerOptions);
   }
 
   /**
@@ -144,7 +552,20 @@ public class GrooveGTSBuilder {
    * @param targetDir target directory
    */
   public void writeStartGraph(Path targetDir) {
-    startGraphBuilder.build().write(targetDir, START_GST, layout);
+    writeStartGraph(targetDir, writerOptions);
+  }
+
+  private void writeStartGraph(Path targetDir, GrooveWriterOptions options) {
+    startGraphBuilder.build().write(targetDir, START_GST, options);
+  }
+
+  /**
+   * Write the start graph to a sink.
+   *
+   * @param sink sink, for example, a directory or memory.
+   */
+  public void writeStartGraph(GrooveOutputSink sink) {
+    startGraphBuilder.build().write(sink, START_GST, writerOptions);
   }
 
   /**
@@ -153,23 +574,53 @@ public class GrooveGTSBuilder {
    * @param targetDir target directory
    */
   public void writePropertiesFile(Path targetDir) {
-    DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-    LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
-
-    String propertiesContent =
-        String.format(
-            "# %s (graph rule generation, see https://github.com/timKraeuter/graph-rule-generation)%nstartGraph=%s%n%sgrooveVersion=6.1.0%ngrammarVersion=3.7",
-            dtf.format(now), START, this.getAdditionalProperties());
-    Path propertiesFile = Paths.get(targetDir.toString(), "system.properties");
+    String propertiesContent = getPropertiesContent();
+    Path propertiesFile = Paths.get(targetDir.toString(), SYSTEM_PROPERTIES);
     try {
+      // Keep an identical file untouched, such that its modification time does not change.
+      if (Files.exists(propertiesFile)
+          && Files.readString(propertiesFile).equals(propertiesContent)) {
+        return;
+      }
       Files.writeString(propertiesFile, propertiesContent);
     } catch (IOException e) {
       throw new ShouldNotHappenRuntimeException(e);
     }
   }
 
+  /**
+   * Write the configured properties file to a sink.
+   *
+   * @param sink sink, for example, a directory or memory.
+   */
+  public void writePropertiesFile(GrooveOutputSink sink) {
+    byte[] propertiesContent = getPropertiesContent().getBytes(StandardCharsets.UTF_8);
+    sink.write(SYSTEM_PROPERTIES, out -> out.write(propertiesContent));
+  }
+
+  private String getPropertiesContent() {
+    return String.format(
+        "# %s(graph rule generation, see https://github.com/timKraeuter/graph-rule-generation)%nstartGraph=%s%n%sgrooveVersion=6.1.0%ngrammarVersion=3.7",
+        getTimestampComment(), START, this.getAdditionalProperties());
+  }
+
+  private String getTimestampComment() {
+    LocalDateTime writtenAt = this.timestamp;
+    if (writtenAt == null) {
+      if (reproducible) {
+        return "";
+      }
+      writtenAt = LocalDateTime.now(ZoneId.systemDefault());
+    }
+    DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    return dtf.format(writtenAt) + " ";
+  }
+
   private String getAdditionalProperties() {
     return this.additionalProperties.entrySet().stream()
         .reduce("", (prop1, prop2) -> prop1 + prop2 + "\n", (key, value) -> key + "=" + value);
   }
+
+  /** GTS folder and writer options of rules written through. */
+  private record WriteThroughTarget(Path dir, GrooveWriterOptions options) {}
 }
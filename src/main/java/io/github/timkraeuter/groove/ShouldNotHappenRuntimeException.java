@@ -21,4 +21,14 @@ public class ShouldNotHappenRuntimeException extends RuntimeException {
   public ShouldNotHappenRuntimeException(String message, Exception e) {
     super(message, e);
   }
+
+  /**
+   * Exception with a message caused by any throwable, for example, an error.
+   *
+   * @param message message.
+   * @param cause cause.
+   */
+  public ShouldNotHappenRuntimeException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -0,0 +1,294 @@
+package io.github.timkraeuter.groove.graph;
+
+import io.github.timkraeuter.api.Graph;
+import io.github.timkraeuter.api.GraphEdge;
+import io.github.timkraeuter.api.GraphNode;
+import io.github.timkraeuter.groove.rule.GrooveOutputSink;
+import io.github.timkraeuter.groove.rule.GrooveRuleAndGraphWriter;
+import io.github.timkraeuter.groove.rule.GrooveWriterOptions;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Memory-lean graph for very large start graphs, which is built using the {@link
+ * CompactGrooveGraphBuilder}. Nodes and edges are not objects but indices into primitive arrays.
+ * The outgoing edges of each node are stored consecutively (compressed sparse rows), labels are
+ * stored once, and flags and attributes need no memory if no node has them. Nodes are numbered
+ * from 0 in the order they were added. Edges are numbered by their source node and in the order
+ * they were added for the same source node. The node and edge objects returned by {@link #nodes()}
+ * and {@link #edges()} are created on demand.
+ */
+public class CompactGrooveGraph
+    implements Graph<CompactGrooveGraph.Node, CompactGrooveGraph.Edge> {
+  private final String name;
+  private final String[] labels;
+  private final int[] nodeLabels;
+  private final int[] edgeOffsets;
+  private final int[] edgeTargets;
+  private final int[] edgeLabels;
+  // The flag and attribute arrays are null if no node has flags or attributes, respectively.
+  private final int[] flagOffsets;
+  private final int[] flagLabels;
+  private final int[] attributeOffsets;
+  private final int[] attributeNames;
+  private final int[] attributeTypes;
+  private final int[] attributeValues;
+
+  CompactGrooveGraph(
+      String name,
+      String[] labels,
+      int[] nodeLabels,
+      int[] edgeOffsets,
+      int[] edgeTargets,
+      int[] edgeLabels,
+      int[] flagOffsets,
+      int[] flagLabels,
+      int[] attributeOffsets,
+      int[] attributeNames,
+      int[] attributeTypes,
+      int[] attributeValues) {
+    this.name = name;
+    this.labels = labels;
+    this.nodeLabels = nodeLabels;
+    this.edgeOffsets = edgeOffsets;
+    this.edgeTargets = edgeTargets;
+    this.edgeLabels = edgeLabels;
+    this.flagOffsets = flagOffsets;
+    this.flagLabels = flagLabels;
+    this.attributeOffsets = attributeOffsets;
+    this.attributeNames = attributeNames;
+    this.attributeTypes = attributeTypes;
+    this.attributeValues = attributeValues;
+  }
+
+  /**
+   * Return the name.
+   *
+   * @return name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the number of nodes.
+   *
+   * @return number of nodes.
+   */
+  public int getNodeCount() {
+    return nodeLabels.length;
+  }
+
+  /**
+   * Returns the number of edges.
+   *
+   * @return number of edges.
+   */
+  public int getEdgeCount() {
+    return edgeTargets.length;
+  }
+
+  /**
+   * Returns the label (name) of a node.
+   *
+   * @param node node index.
+   * @return label.
+   */
+  public String getNodeLabel(int node) {
+    return labels[nodeLabels[node]];
+  }
+
+  /**
+   * Returns the index of the first outgoing edge of a node. The outgoing edges of a node are the
+   * edges from this index up to (excluding) {@link #getOutEdgesEnd(int)}.
+   *
+   * @param node node index.
+   * @return index of the first outgoing edge.
+   */
+  public int getOutEdgesStart(int node) {
+    return edgeOffsets[node];
+  }
+
+  /**
+   * Returns the index after the last outgoing edge of a node.
+   *
+   * @param node node index.
+   * @return index after the last outgoing edge.
+   */
+  public int getOutEdgesEnd(int node) {
+    return edgeOffsets[node + 1];
+  }
+
+  /**
+   * Returns the source node of an edge. Takes logarithmic time in the number of nodes, since
+   * sources are not stored for each edge.
+   *
+   * @param edge edge index.
+   * @return source node index.
+   */
+  public int getEdgeSource(int edge) {
+    if (edge < 0 || edge >= getEdgeCount()) {
+      throw new IndexOutOfBoundsException(edge);
+    }
+    // Nodes without outgoing edges have the same offset as the next node, so we take the last.
+    int index = Arrays.binarySearch(edgeOffsets, edge);
+    if (index < 0) {
+      return -index - 2;
+    }
+    while (edgeOffsets[index + 1] == edge) {
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the target node of an edge.
+   *
+   * @param edge edge index.
+   * @return target node index.
+   */
+  public int getEdgeTarget(int edge) {
+    return edgeTargets[edge];
+  }
+
+  /**
+   * Returns the label (name) of an edge.
+   *
+   * @param edge edge index.
+   * @return label.
+   */
+  public String getEdgeLabel(int edge) {
+    return labels[edgeLabels[edge]];
+  }
+
+  /**
+   * Returns the flags of a node.
+   *
+   * @param node node index.
+   * @return flags in the order they were added.
+   */
+  public List<String> getFlags(int node) {
+    if (flagOffsets == null) {
+      return List.of();
+    }
+    List<String> flags = new ArrayList<>(flagOffsets[node + 1] - flagOffsets[node]);
+    for (int i = flagOffsets[node]; i < flagOffsets[node + 1]; i++) {
+      flags.add(labels[flagLabels[i]]);
+    }
+    return flags;
+  }
+
+  /**
+   * Returns the attributes of a node.
+   *
+   * @param node node index.
+   * @return attributes in the order they were added.
+   */
+  public Map<String, GrooveValue> getAttributes(int node) {
+    if (attributeOffsets == null) {
+      return Map.of();
+    }
+    Map<String, GrooveValue> attributes = new LinkedHashMap<>();
+    for (int i = attributeOffsets[node]; i < attributeOffsets[node + 1]; i++) {
+      attributes.put(
+          labels[attributeNames[i]],
+          new GrooveValue(labels[attributeTypes[i]], labels[attributeValues[i]]));
+    }
+    return attributes;
+  }
+
+  @Override
+  public Stream<Node> nodes() {
+    return IntStream.range(0, getNodeCount()).mapToObj(node -> new Node(this, node));
+  }
+
+  @Override
+  public Stream<Edge> edges() {
+    return IntStream.range(0, getNodeCount())
+        .boxed()
+        .flatMap(
+            source ->
+                IntStream.range(getOutEdgesStart(source), getOutEdgesEnd(source))
+                    .mapToObj(edge -> new Edge(this, edge, source)));
+  }
+
+  /**
+   * Write the graph to a dir using the groove (GXL) format.
+   *
+   * @param dir directory
+   * @param filename name of the file.
+   * @param options writer options.
+   */
+  public void write(Path dir, String filename, GrooveWriterOptions options) {
+    GrooveRuleAndGraphWriter.writeGraph(dir, filename, this, options);
+  }
+
+  /**
+   * Write the graph to a sink using the groove (GXL) format.
+   *
+   * @param sink sink, for example, a directory or memory.
+   * @param filename name of the file.
+   * @param options writer options.
+   */
+  public void write(GrooveOutputSink sink, String filename, GrooveWriterOptions options) {
+    GrooveRuleAndGraphWriter.writeGraph(sink, filename, this, options);
+  }
+
+  /**
+   * Node of a compact graph, which is created on demand.
+   *
+   * @param graph graph of the node.
+   * @param index node index.
+   */
+  public record Node(CompactGrooveGraph graph, int index) implements GraphNode {
+
+    @Override
+    public String getId() {
+      return GrooveNode.toNodeId(index);
+    }
+
+    /**
+     * Returns the label (name) of the node.
+     *
+     * @return label.
+     */
+    public String getLabel() {
+      return graph.getNodeLabel(index);
+    }
+  }
+
+  /**
+   * Edge of a compact graph, which is created on demand.
+   *
+   * @param graph graph of the edge.
+   * @param index edge index.
+   * @param source source node index.
+   */
+  public record Edge(CompactGrooveGraph graph, int index, int source) implements GraphEdge {
+
+    @Override
+    public Node getSourceNode() {
+      return new Node(graph, source);
+    }
+
+    @Override
+    public Node getTargetNode() {
+      return new Node(graph, graph.getEdgeTarget(index));
+    }
+
+    /**
+     * Returns the label (name) of the edge.
+     *
+     * @return label.
+     */
+    public String getLabel() {
+      return graph.getEdgeLabel(index);
+    }
+  }
+}
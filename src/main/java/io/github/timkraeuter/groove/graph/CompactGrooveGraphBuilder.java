@@ -0,0 +1,295 @@
+package io.github.timkraeuter.groove.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builder for {@link CompactGrooveGraph}s. Nodes are identified by the index returned when they are
+ * added. Labels are interned, i.e., each distinct label is stored once.
+ */
+public class CompactGrooveGraphBuilder {
+  private String name;
+  private final Map<String, Integer> labelToIndex;
+  private final List<String> labels;
+  private final IntList nodeLabels;
+  private final IntList edgeSources;
+  private final IntList edgeTargets;
+  private final IntList edgeLabels;
+  private final IntList flagNodes;
+  private final IntList flagLabels;
+  private final IntList attributeNodes;
+  private final IntList attributeNames;
+  private final IntList attributeTypes;
+  private final IntList attributeValues;
+
+  /** Create a new compact graph builder. */
+  public CompactGrooveGraphBuilder() {
+    this.labelToIndex = new HashMap<>();
+    this.labels = new ArrayList<>();
+    this.nodeLabels = new IntList();
+    this.edgeSources = new IntList();
+    this.edgeTargets = new IntList();
+    this.edgeLabels = new IntList();
+    this.flagNodes = new IntList();
+    this.flagLabels = new IntList();
+    this.attributeNodes = new IntList();
+    this.attributeNames = new IntList();
+    this.attributeTypes = new IntList();
+    this.attributeValues = new IntList();
+  }
+
+  /**
+   * Set the name.
+   *
+   * @param name name.
+   * @return builder.
+   */
+  public CompactGrooveGraphBuilder name(String name) {
+    this.name = name;
+    return this;
+  }
+
+  /**
+   * Add a node.
+   *
+   * @param label node label (name).
+   * @return index of the node.
+   */
+  public int addNode(String label) {
+    nodeLabels.add(intern(label));
+    return nodeLabels.size() - 1;
+  }
+
+  /**
+   * Add an edge between two added nodes.
+   *
+   * @param label edge label (name).
+   * @param source source node index.
+   * @param target target node index.
+   * @return builder.
+   */
+  public CompactGrooveGraphBuilder addEdge(String label, int source, int target) {
+    checkNode(source);
+    checkNode(target);
+    edgeSources.add(source);
+    edgeTargets.add(target);
+    edgeLabels.add(intern(label));
+    return this;
+  }
+
+  /**
+   * Add a flag to a node. Adding the same flag to a node again has no effect.
+   *
+   * @param node node index.
+   * @param flag flag.
+   * @return builder.
+   */
+  public CompactGrooveGraphBuilder addFlag(int node, String flag) {
+    checkNode(node);
+    flagNodes.add(node);
+    flagLabels.add(intern(flag));
+    return this;
+  }
+
+  /**
+   * Add an attribute to a node.
+   *
+   * @param node node index.
+   * @param name name
+   * @param value value (String)
+   * @return builder.
+   */
+  public CompactGrooveGraphBuilder addAttribute(int node, String name, String value) {
+    return addAttribute(node, name, "string", String.format("\"%s\"", value));
+  }
+
+  /**
+   * Add an attribute to a node.
+   *
+   * @param node node index.
+   * @param name name
+   * @param value value (int)
+   * @return builder.
+   */
+  public CompactGrooveGraphBuilder addAttribute(int node, String name, int value) {
+    return addAttribute(node, name, "int", String.valueOf(value));
+  }
+
+  /**
+   * Add an attribute to a node.
+   *
+   * @param node node index.
+   * @param name name
+   * @param value value (boolean)
+   * @return builder.
+   */
+  public CompactGrooveGraphBuilder addAttribute(int node, String name, boolean value) {
+    return addAttribute(node, name, "bool", String.valueOf(value));
+  }
+
+  private CompactGrooveGraphBuilder addAttribute(
+      int node, String name, String typeName, String value) {
+    checkNode(node);
+    attributeNodes.add(node);
+    attributeNames.add(intern(name));
+    attributeTypes.add(intern(typeName));
+    attributeValues.add(intern(value));
+    return this;
+  }
+
+  /**
+   * Build the graph. The builder should not be used afterward.
+   *
+   * @return built graph.
+   */
+  public CompactGrooveGraph build() {
+    int nodeCount = nodeLabels.size();
+    int[] edgeOffsets = computeOffsets(edgeSources, nodeCount);
+    int[] edgeOrder = computeOrder(edgeSources, edgeOffsets);
+
+    int[] flagOffsets = null;
+    int[] sortedFlagLabels = null;
+    if (flagNodes.size() > 0) {
+      flagOffsets = computeOffsets(flagNodes, nodeCount);
+      sortedFlagLabels =
+          removeDuplicateFlags(
+              flagOffsets, flagLabels.permute(computeOrder(flagNodes, flagOffsets)));
+    }
+    int[] attributeOffsets = null;
+    int[] attributeOrder = null;
+    if (attributeNodes.size() > 0) {
+      attributeOffsets = computeOffsets(attributeNodes, nodeCount);
+      attributeOrder = computeOrder(attributeNodes, attributeOffsets);
+    }
+    return new CompactGrooveGraph(
+        name,
+        labels.toArray(String[]::new),
+        nodeLabels.toArray(),
+        edgeOffsets,
+        edgeTargets.permute(edgeOrder),
+        edgeLabels.permute(edgeOrder),
+        flagOffsets,
+        sortedFlagLabels,
+        attributeOffsets,
+        attributeNames.permute(attributeOrder),
+        attributeTypes.permute(attributeOrder),
+        attributeValues.permute(attributeOrder));
+  }
+
+  private int intern(String label) {
+    return labelToIndex.computeIfAbsent(
+        label,
+        newLabel -> {
+          labels.add(newLabel);
+          return labels.size() - 1;
+        });
+  }
+
+  private void checkNode(int node) {
+    if (node < 0 || node >= nodeLabels.size()) {
+      throw new IllegalArgumentException(String.format("Node %s was not added!", node));
+    }
+  }
+
+  /**
+   * Returns for each node the index of its first element, when the elements are grouped by node.
+   * The last entry is the number of elements.
+   */
+  private static int[] computeOffsets(IntList nodes, int nodeCount) {
+    int[] offsets = new int[nodeCount + 1];
+    for (int i = 0; i < nodes.size(); i++) {
+      offsets[nodes.get(i) + 1]++;
+    }
+    for (int node = 0; node < nodeCount; node++) {
+      offsets[node + 1] += offsets[node];
+    }
+    return offsets;
+  }
+
+  /**
+   * Returns the element indices grouped by node (counting sort). Elements of the same node keep
+   * the order they were added in.
+   */
+  private static int[] computeOrder(IntList nodes, int[] offsets) {
+    int[] nextPositions = Arrays.copyOf(offsets, offsets.length - 1);
+    int[] order = new int[nodes.size()];
+    for (int i = 0; i < nodes.size(); i++) {
+      order[nextPositions[nodes.get(i)]++] = i;
+    }
+    return order;
+  }
+
+  /**
+   * Removes repeated flags of a node, keeping the first one, since nodes store their flags as a
+   * set. Updates the offsets and returns the remaining flag labels. Nodes have few flags, which is
+   * why the flags of a node are searched linearly.
+   */
+  private static int[] removeDuplicateFlags(int[] offsets, int[] sortedFlagLabels) {
+    int kept = 0;
+    int start = offsets[0];
+    for (int node = 0; node < offsets.length - 1; node++) {
+      int end = offsets[node + 1];
+      int keptStart = kept;
+      for (int i = start; i < end; i++) {
+        if (!contains(sortedFlagLabels, keptStart, kept, sortedFlagLabels[i])) {
+          sortedFlagLabels[kept++] = sortedFlagLabels[i];
+        }
+      }
+      offsets[node] = keptStart;
+      start = end;
+    }
+    offsets[offsets.length - 1] = kept;
+    return kept == sortedFlagLabels.length
+        ? sortedFlagLabels
+        : Arrays.copyOf(sortedFlagLabels, kept);
+  }
+
+  private static boolean contains(int[] values, int start, int end, int value) {
+    for (int i = start; i < end; i++) {
+      if (values[i] == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Growable int array, which avoids boxing the elements. */
+  private static class IntList {
+    private int[] values = new int[16];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+
+    /** Returns the values in the given order or null if there is no order. */
+    int[] permute(int[] order) {
+      if (order == null) {
+        return null;
+      }
+      int[] permuted = new int[order.length];
+      for (int i = 0; i < order.length; i++) {
+        permuted[i] = values[order[i]];
+      }
+      return permuted;
+    }
+  }
+}
@@ -1,24 +1,36 @@
 package io.github.timkraeuter.groove.graph;
 
 import io.github.timkraeuter.api.GraphEdge;
-import java.util.concurrent.atomic.AtomicLong;
 
 /** Edge in a groove graph. */
 public class GrooveEdge implements GraphEdge {
-  private static final AtomicLong idCounter = new AtomicLong(-1);
-  private final String id = Long.toString(idCounter.incrementAndGet());
+  private final long id;
   private final String name;
   private final GrooveNode sourceNode;
   private final GrooveNode targetNode;
 
   /**
-   * Create an edge.
+   * Create an edge with an id of the global id context.
    *
    * @param name name.
    * @param sourceNode source node.
    * @param targetNode target node.
    */
   public GrooveEdge(String name, GrooveNode sourceNode, GrooveNode targetNode) {
+    this(name, sourceNode, targetNode, GrooveIdContext.global());
+  }
+
+  /**
+   * Create an edge.
+   *
+   * @param name name.
+   * @param sourceNode source node.
+   * @param targetNode target node.
+   * @param idContext context allocating the id of the edge.
+   */
+  public GrooveEdge(
+      String name, GrooveNode sourceNode, GrooveNode targetNode, GrooveIdContext idContext) {
+    this.id = idContext.nextEdgeId();
     this.name = name;
     this.sourceNode = sourceNode;
     this.targetNode = targetNode;
@@ -30,6 +42,15 @@ public class GrooveEdge implements GraphEdge {
    * @return id.
    */
   public String getId() {
+    return Long.toString(this.id);
+  }
+
+  /**
+   * Return the numeric id.
+   *
+   * @return numeric id.
+   */
+  public long getNumericId() {
     return this.id;
   }
 
@@ -1,7 +1,9 @@
 package io.github.timkraeuter.groove.graph;
 
 import io.github.timkraeuter.api.Graph;
+import io.github.timkraeuter.groove.rule.GrooveOutputSink;
 import io.github.timkraeuter.groove.rule.GrooveRuleAndGraphWriter;
+import io.github.timkraeuter.groove.rule.GrooveWriterOptions;
 import java.nio.file.Path;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -78,4 +80,26 @@ public class GrooveGraph implements Graph<GrooveNode, GrooveEdge> {
   public void write(Path dir, String filename, boolean layout) {
     GrooveRuleAndGraphWriter.writeGraph(dir, filename, this, layout);
   }
+
+  /**
+   * Write the graph to a dir using the groove (GXL) format.
+   *
+   * @param dir directory
+   * @param filename name of the file.
+   * @param options writer options.
+   */
+  public void write(Path dir, String filename, GrooveWriterOptions options) {
+    GrooveRuleAndGraphWriter.writeGraph(dir, filename, this, options);
+  }
+
+  /**
+   * Write the graph to a sink using the groove (GXL) format.
+   *
+   * @param sink sink, for example, a directory or memory.
+   * @param filename name of the file.
+   * @param options writer options.
+   */
+  public void write(GrooveOutputSink sink, String filename, GrooveWriterOptions options) {
+    GrooveRuleAndGraphWriter.writeGraph(sink, filename, this, options);
+  }
 }
@@ -9,11 +9,31 @@ public class GrooveGraphBuilder {
   private String name;
   private final Set<GrooveNode> nodes;
   private final Set<GrooveEdge> edges;
+  private final GrooveIdContext idContext;
 
-  /** Create a new graph builder. */
+  /** Create a new graph builder using the global id context. */
   public GrooveGraphBuilder() {
+    this(GrooveIdContext.global());
+  }
+
+  /**
+   * Create a new graph builder.
+   *
+   * @param idContext context allocating the ids of created nodes and edges.
+   */
+  public GrooveGraphBuilder(GrooveIdContext idContext) {
     this.nodes = new LinkedHashSet<>();
     this.edges = new LinkedHashSet<>();
+    this.idContext = idContext;
+  }
+
+  /**
+   * Returns the id context of the builder, which should be used to create the nodes of the graph.
+   *
+   * @return id context.
+   */
+  public GrooveIdContext getIdContext() {
+    return this.idContext;
   }
 
   /**
@@ -28,7 +48,9 @@ public class GrooveGraphBuilder {
   }
 
   /**
-   * Add a node
+   * Add a node. The node must be created using the id context of the builder, for example, using
+   * {@link #createNode(String)}. Otherwise, its id may clash with the ids of other nodes of the
+   * graph. This is not checked, since ids do not record their context.
    *
    * @param node node
    * @return Graph builder
@@ -42,7 +64,20 @@ public class GrooveGraphBuilder {
   }
 
   /**
-   * Add an edge.
+   * Create a node using the id context of the builder and add it.
+   *
+   * @param nodeName node name
+   * @return created node
+   */
+  public GrooveNode createNode(String nodeName) {
+    GrooveNode node = new GrooveNode(nodeName, this.idContext);
+    this.addNode(node);
+    return node;
+  }
+
+  /**
+   * Add an edge. The source and target are added as nodes, i.e., they must be created using the id
+   * context of the builder as well.
    *
    * @param name edge name
    * @param source edge source
@@ -51,7 +86,7 @@ public class GrooveGraphBuilder {
    */
   public GrooveGraphBuilder addEdge(String name, GrooveNode source, GrooveNode target) {
     this.addNode(source).addNode(target);
-    this.edges.add(new GrooveEdge(name, source, target));
+    this.edges.add(new GrooveEdge(name, source, target, this.idContext));
     return this;
   }
 
@@ -0,0 +1,89 @@
+package io.github.timkraeuter.groove.graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates the ids of nodes and edges. Ids are unique within one context, i.e., the nodes of a
+ * graph or rule should be created using the same context. Builders which use their own context can
+ * be used concurrently without sharing counters and create the same ids in every run.
+ */
+public class GrooveIdContext {
+  private static final GrooveIdContext GLOBAL = new GrooveIdContext();
+
+  private final AtomicLong nodeIdCounter;
+  private final AtomicLong edgeIdCounter;
+
+  /** Create a new id context. The first node and edge id is 0. */
+  public GrooveIdContext() {
+    this.nodeIdCounter = new AtomicLong(-1);
+    this.edgeIdCounter = new AtomicLong(-1);
+  }
+
+  /**
+   * Create a new id context starting at the given ids, for example, ids reserved in another context
+   * using {@link #reserveNodeIds(long)} and {@link #reserveEdgeIds(long)}.
+   *
+   * @param firstNodeId first node id.
+   * @param firstEdgeId first edge id.
+   */
+  public GrooveIdContext(long firstNodeId, long firstEdgeId) {
+    this.nodeIdCounter = new AtomicLong(firstNodeId - 1);
+    this.edgeIdCounter = new AtomicLong(firstEdgeId - 1);
+  }
+
+  /**
+   * Returns the JVM-wide id context, which is used if no context is given.
+   *
+   * @return global id context.
+   */
+  public static GrooveIdContext global() {
+    return GLOBAL;
+  }
+
+  /**
+   * Get the next node id.
+   *
+   * @return numeric node id.
+   */
+  public long nextNodeId() {
+    return this.nodeIdCounter.incrementAndGet();
+  }
+
+  /**
+   * Get the next edge id.
+   *
+   * @return numeric edge id.
+   */
+  public long nextEdgeId() {
+    return this.edgeIdCounter.incrementAndGet();
+  }
+
+  /**
+   * Reserve consecutive node ids, which are not returned by {@link #nextNodeId()} anymore.
+   *
+   * @param count number of reserved ids.
+   * @return first reserved node id.
+   */
+  public long reserveNodeIds(long count) {
+    return this.nodeIdCounter.getAndAdd(count) + 1;
+  }
+
+  /**
+   * Reserve consecutive edge ids, which are not returned by {@link #nextEdgeId()} anymore.
+   *
+   * @param count number of reserved ids.
+   * @return first reserved edge id.
+   */
+  public long reserveEdgeIds(long count) {
+    return this.edgeIdCounter.getAndAdd(count) + 1;
+  }
+
+  /**
+   * Set the node id counter. The next node id is the counter plus one.
+   *
+   * @param counter new value.
+   */
+  public void setNodeIdCounter(long counter) {
+    this.nodeIdCounter.set(counter);
+  }
+}
@@ -5,48 +5,91 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
 
 /** Node in groove. */
 public class GrooveNode implements GraphNode {
-  private static final AtomicLong idCounter = new AtomicLong(-1);
-  private final String id;
+  private static final String ID_PREFIX = "n";
+  private final long id;
   private final String name;
   private final Set<String> flags;
   private final Map<String, GrooveValue> attributes;
 
   /**
-   * Create a new node.
+   * Create a new node with an id of the global id context.
    *
    * @param name name.
    */
   public GrooveNode(String name) {
-    this.id = getNextNodeId();
+    this(name, GrooveIdContext.global());
+  }
+
+  /**
+   * Create a new node.
+   *
+   * @param name name.
+   * @param idContext context allocating the id of the node.
+   */
+  public GrooveNode(String name, GrooveIdContext idContext) {
+    this.id = idContext.nextNodeId();
     this.name = name;
     this.flags = new LinkedHashSet<>();
     this.attributes = new LinkedHashMap<>();
   }
 
   /**
-   * Get the next generated ID for nodes.
+   * Get the next generated ID for nodes of the global id context.
    *
    * @return node id.
    */
   public static String getNextNodeId() {
-    return "n" + idCounter.incrementAndGet();
+    return toNodeId(getNextNumericNodeId());
   }
 
   /**
-   * Set the id counter.
+   * Get the next generated numeric ID for nodes of the global id context.
+   *
+   * @return numeric node id.
+   */
+  public static long getNextNumericNodeId() {
+    return GrooveIdContext.global().nextNodeId();
+  }
+
+  /**
+   * Render a numeric node id as it is used in gxl files, i.e., "n" followed by the number.
+   *
+   * @param numericId numeric node id.
+   * @return node id.
+   */
+  public static String toNodeId(long numericId) {
+    return ID_PREFIX + numericId;
+  }
+
+  /**
+   * Set the id counter of the global id context.
    *
    * @param counter new value.
    */
   public static void setIDCounter(int counter) {
-    idCounter.set(counter);
+    GrooveIdContext.global().setNodeIdCounter(counter);
   }
 
+  /**
+   * Returns the id rendered as a string. Use {@link #getNumericId()} for lookups, which avoids
+   * creating the string.
+   *
+   * @return ID
+   */
   @Override
   public String getId() {
+    return toNodeId(this.id);
+  }
+
+  /**
+   * Returns the numeric id, which is unique among the nodes.
+   *
+   * @return numeric id.
+   */
+  public long getNumericId() {
     return this.id;
   }
 
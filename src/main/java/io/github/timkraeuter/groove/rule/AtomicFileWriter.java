@@ -0,0 +1,79 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import org.apache.commons.io.function.IOConsumer;
+
+/**
+ * Writes files via a temporary file in the target directory, which is moved to the target file
+ * once it is completely written. Thus, partially written files never appear in the target
+ * directory.
+ */
+class AtomicFileWriter {
+  /** Large enough to write most rules in very few system calls. Also used by the sinks. */
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private AtomicFileWriter() {
+    // Helper methods.
+  }
+
+  /**
+   * Write a file. The given content writer must not close the stream.
+   *
+   * @param file the file to write. Replaced if it already exists.
+   * @param contentWriter writes the content to a buffered stream.
+   */
+  static void write(Path file, IOConsumer<OutputStream> contentWriter) {
+    // Hidden temporary file, such that groove ignores it in any case. Not created using
+    // Files.createTempFile, since its owner-only permissions would be kept by the move.
+    String tempFileName =
+        String.format(".%s.%s%s", file.getFileName(), UUID.randomUUID(), TEMP_FILE_SUFFIX);
+    Path tempFile = file.toAbsolutePath().getParent().resolve(tempFileName);
+    boolean created = false;
+    boolean moved = false;
+    try {
+      OutputStream tempFileStream =
+          Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      created = true;
+      try (OutputStream out = new BufferedOutputStream(tempFileStream, BUFFER_SIZE)) {
+        contentWriter.accept(out);
+      }
+      moveToTarget(tempFile, file);
+      moved = true;
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(
+          String.format("The file %s could not be written.", file), e);
+    } finally {
+      if (created && !moved) {
+        deleteTempFile(tempFile);
+      }
+    }
+  }
+
+  private static void moveToTarget(Path tempFile, Path file) throws IOException {
+    try {
+      Files.move(
+          tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void deleteTempFile(Path tempFile) {
+    try {
+      Files.deleteIfExists(tempFile);
+    } catch (IOException e) {
+      // The original failure is more relevant, and the file is hidden.
+    }
+  }
+}
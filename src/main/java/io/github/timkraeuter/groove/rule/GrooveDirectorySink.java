@@ -0,0 +1,34 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.nio.file.Path;
+
+/**
+ * Writes files to a directory. Each file is written to a temporary file first and moved to its
+ * name once it is complete, such that partially written files never appear in the directory.
+ */
+public class GrooveDirectorySink implements GrooveOutputSink {
+  private final Path dir;
+
+  /**
+   * Create a sink writing to the given directory, which must exist.
+   *
+   * @param dir target directory.
+   */
+  public GrooveDirectorySink(Path dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Returns the target directory.
+   *
+   * @return target directory.
+   */
+  public Path getDir() {
+    return dir;
+  }
+
+  @Override
+  public void write(String name, ContentWriter content) {
+    AtomicFileWriter.write(dir.resolve(name), content::write);
+  }
+}
@@ -3,24 +3,42 @@ package io.github.timkraeuter.groove.rule;
 import io.github.timkraeuter.api.GraphTransformationRule;
 import io.github.timkraeuter.groove.graph.GrooveEdge;
 import io.github.timkraeuter.groove.graph.GrooveNode;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-/** Represent a groove graph rule. */
+/**
+ * Represent a groove graph rule. The returned sets and maps are unmodifiable views of the rule,
+ * i.e., they are not copied.
+ */
 public class GrooveGraphRule implements GraphTransformationRule {
   private final String ruleName;
 
-  private final Map<String, GrooveNode> nodesToBeAdded;
-  private final Map<String, GrooveNode> contextNodes;
-  private final Map<String, GrooveNode> nodesToBeDeleted;
-  private final Map<String, GrooveNode> nacNodes;
-  private final Map<String, GrooveEdge> edgesToBeAdded;
-  private final Map<String, GrooveEdge> contextEdges;
-  private final Map<String, GrooveEdge> nacEdges;
-  private final Map<String, GrooveEdge> edgesToBeDeleted;
+  private final Set<GrooveNode> nodesToBeAdded;
+  private final Set<GrooveNode> contextNodes;
+  private final Set<GrooveNode> nodesToBeDeleted;
+  private final Set<GrooveNode> nacNodes;
+  private final Set<GrooveEdge> edgesToBeAdded;
+  private final Set<GrooveEdge> contextEdges;
+  private final Set<GrooveEdge> nacEdges;
+  private final Set<GrooveEdge> edgesToBeDeleted;
+
+  /** All nodes of the rule by numeric id in insertion order. */
+  private final Map<Long, GrooveNode> idToNode;
+
+  private final Map<Long, NodeRuleAspect> idToNodeAspect;
+
+  /** Structural index of the edges of all aspects, used to detect duplicates. */
+  private final Map<EdgeKey, GrooveEdge> keyToEdge;
+
+  private final Map<Long, NodeRuleAspect> idToEdgeAspect;
+  private final Map<Long, List<GrooveEdge>> nodeIdToOutgoingEdges;
+  private final Map<Long, List<GrooveEdge>> nodeIdToIncomingEdges;
 
   /**
    * Create a new rule.
@@ -29,14 +47,20 @@ public class GrooveGraphRule implements GraphTransformationRule {
    */
   public GrooveGraphRule(String ruleName) {
     this.ruleName = ruleName;
-    this.nodesToBeAdded = new LinkedHashMap<>();
-    this.contextNodes = new LinkedHashMap<>();
-    this.nodesToBeDeleted = new LinkedHashMap<>();
-    this.edgesToBeAdded = new LinkedHashMap<>();
-    this.contextEdges = new LinkedHashMap<>();
-    this.nacEdges = new LinkedHashMap<>();
-    this.edgesToBeDeleted = new LinkedHashMap<>();
-    this.nacNodes = new LinkedHashMap<>();
+    this.nodesToBeAdded = new LinkedHashSet<>();
+    this.contextNodes = new LinkedHashSet<>();
+    this.nodesToBeDeleted = new LinkedHashSet<>();
+    this.edgesToBeAdded = new LinkedHashSet<>();
+    this.contextEdges = new LinkedHashSet<>();
+    this.nacEdges = new LinkedHashSet<>();
+    this.edgesToBeDeleted = new LinkedHashSet<>();
+    this.nacNodes = new LinkedHashSet<>();
+    this.idToNode = new LinkedHashMap<>();
+    this.idToNodeAspect = new HashMap<>();
+    this.keyToEdge = new HashMap<>();
+    this.idToEdgeAspect = new HashMap<>();
+    this.nodeIdToOutgoingEdges = new HashMap<>();
+    this.nodeIdToIncomingEdges = new HashMap<>();
   }
 
   /**
@@ -49,80 +73,80 @@ public class GrooveGraphRule implements GraphTransformationRule {
   }
 
   void addNewNode(GrooveNode newNode) {
-    this.checkIfNotAlreadyInContext(newNode);
-    this.checkIfNotAlreadyDeleted(newNode);
-    this.checkIfNotAlreadyInNot(newNode);
-    this.nodesToBeAdded.put(newNode.getId(), newNode);
+    this.addNode(newNode, NodeRuleAspect.ADD, this.nodesToBeAdded);
   }
 
-  private void checkIfNotAlreadyDeleted(GrooveNode node) {
-    if (this.nodesToBeDeleted.get(node.getId()) != null) {
-      throw new IllegalArgumentException(
-          String.format("Node %s already contained as a to-be-deleted node!", node));
-    }
+  void addContextNode(GrooveNode contextNode) {
+    this.addNode(contextNode, NodeRuleAspect.CONTEXT, this.contextNodes);
   }
 
-  private void checkIfNotAlreadyInContext(GrooveNode node) {
-    if (this.contextNodes.get(node.getId()) != null) {
-      throw new IllegalArgumentException(
-          String.format("Node %s already contained as a context node!", node));
-    }
+  void addDelNode(GrooveNode deleteNode) {
+    this.addNode(deleteNode, NodeRuleAspect.DEL, this.nodesToBeDeleted);
   }
 
-  private void checkIfNotAlreadyInNot(GrooveNode node) {
-    if (this.nacNodes.get(node.getId()) != null) {
-      throw new IllegalArgumentException(
-          String.format("Node %s already contained as a not node (NAC)!", node));
-    }
+  void addNacNode(GrooveNode nacNode) {
+    this.addNode(nacNode, NodeRuleAspect.NOT, this.nacNodes);
   }
 
-  private void checkIfNotAlreadyAdded(GrooveNode contextNode) {
-    if (this.nodesToBeAdded.get(contextNode.getId()) != null) {
+  private void addNode(GrooveNode node, NodeRuleAspect aspect, Set<GrooveNode> aspectNodes) {
+    NodeRuleAspect existingAspect = this.idToNodeAspect.get(node.getNumericId());
+    if (existingAspect != null && existingAspect != aspect) {
       throw new IllegalArgumentException(
-          String.format("Node %s already contained as a to-be-added node!", contextNode));
+          String.format(
+              "Node %s already contained as a %s!", node, getNodeDescription(existingAspect)));
     }
+    this.idToNodeAspect.put(node.getNumericId(), aspect);
+    this.idToNode.put(node.getNumericId(), node);
+    aspectNodes.add(node);
   }
 
-  void addContextNode(GrooveNode contextNode) {
-    this.checkIfNotAlreadyAdded(contextNode);
-    this.checkIfNotAlreadyDeleted(contextNode);
-    this.checkIfNotAlreadyInNot(contextNode);
-    this.contextNodes.put(contextNode.getId(), contextNode);
-  }
-
-  void addDelNode(GrooveNode deleteNode) {
-    this.checkIfNotAlreadyAdded(deleteNode);
-    this.checkIfNotAlreadyInContext(deleteNode);
-    this.checkIfNotAlreadyInNot(deleteNode);
-    this.nodesToBeDeleted.put(deleteNode.getId(), deleteNode);
+  private static String getNodeDescription(NodeRuleAspect aspect) {
+    return switch (aspect) {
+      case ADD -> "to-be-added node";
+      case CONTEXT -> "context node";
+      case DEL -> "to-be-deleted node";
+      case NOT -> "not node (NAC)";
+    };
   }
 
-  void addNacNode(GrooveNode nacNode) {
-    this.checkIfNotAlreadyAdded(nacNode);
-    this.checkIfNotAlreadyDeleted(nacNode);
-    this.checkIfNotAlreadyInContext(nacNode);
-    this.nacNodes.put(nacNode.getId(), nacNode);
-  }
-
-  void addNewEdge(GrooveEdge edge) {
+  GrooveEdge addNewEdge(GrooveEdge edge) {
     // It should be checked elsewhere that the source and target node are in the context of the rule
     // or added by the rule!
-    this.edgesToBeAdded.put(edge.getId(), edge);
+    return this.addEdge(edge, NodeRuleAspect.ADD, this.edgesToBeAdded);
   }
 
-  void addDelEdge(GrooveEdge edge) {
+  GrooveEdge addDelEdge(GrooveEdge edge) {
     // It should be checked elsewhere that the source and target nodes are contained in the rule!
-    this.edgesToBeDeleted.put(edge.getId(), edge);
+    return this.addEdge(edge, NodeRuleAspect.DEL, this.edgesToBeDeleted);
   }
 
-  void addContextEdge(GrooveEdge edge) {
+  GrooveEdge addContextEdge(GrooveEdge edge) {
     // It should be checked elsewhere that the source and target nodes are contained in the rule!
-    this.contextEdges.put(edge.getId(), edge);
+    return this.addEdge(edge, NodeRuleAspect.CONTEXT, this.contextEdges);
   }
 
-  void addNacEdge(GrooveEdge edge) {
+  GrooveEdge addNacEdge(GrooveEdge edge) {
     // It should be checked elsewhere that the source and target nodes are contained in the rule!
-    this.nacEdges.put(edge.getId(), edge);
+    return this.addEdge(edge, NodeRuleAspect.NOT, this.nacEdges);
+  }
+
+  /**
+   * Adds the edge unless the rule already contains an edge with the same source, name, target, and
+   * aspect. Returns the contained edge in this case, i.e., adding an edge twice has no effect.
+   */
+  private GrooveEdge addEdge(GrooveEdge edge, NodeRuleAspect aspect, Set<GrooveEdge> aspectEdges) {
+    long sourceId = edge.getSourceNode().getNumericId();
+    long targetId = edge.getTargetNode().getNumericId();
+    GrooveEdge containedEdge =
+        this.keyToEdge.putIfAbsent(new EdgeKey(sourceId, edge.getName(), targetId, aspect), edge);
+    if (containedEdge != null) {
+      return containedEdge;
+    }
+    this.idToEdgeAspect.put(edge.getNumericId(), aspect);
+    this.nodeIdToOutgoingEdges.computeIfAbsent(sourceId, id -> new ArrayList<>()).add(edge);
+    this.nodeIdToIncomingEdges.computeIfAbsent(targetId, id -> new ArrayList<>()).add(edge);
+    aspectEdges.add(edge);
+    return edge;
   }
 
   /**
@@ -131,7 +155,7 @@ public class GrooveGraphRule implements GraphTransformationRule {
    * @return nodes to be added.
    */
   public Set<GrooveNode> getNodesToBeAdded() {
-    return new LinkedHashSet<>(this.nodesToBeAdded.values());
+    return Collections.unmodifiableSet(this.nodesToBeAdded);
   }
 
   /**
@@ -140,7 +164,7 @@ public class GrooveGraphRule implements GraphTransformationRule {
    * @return context nodes.
    */
   public Set<GrooveNode> getContextNodes() {
-    return new LinkedHashSet<>(this.contextNodes.values());
+    return Collections.unmodifiableSet(this.contextNodes);
   }
 
   /**
@@ -149,7 +173,7 @@ public class GrooveGraphRule implements GraphTransformationRule {
    * @return NAC nodes.
    */
   public Set<GrooveNode> getNACNodes() {
-    return new LinkedHashSet<>(this.nacNodes.values());
+    return Collections.unmodifiableSet(this.nacNodes);
   }
 
   /**
@@ -158,7 +182,7 @@ public class GrooveGraphRule implements GraphTransformationRule {
    * @return edges to be added.
    */
   public Set<GrooveEdge> getEdgesToBeAdded() {
-    return new LinkedHashSet<>(this.edgesToBeAdded.values());
+    return Collections.unmodifiableSet(this.edgesToBeAdded);
   }
 
   /**
@@ -167,7 +191,7 @@ public class GrooveGraphRule implements GraphTransformationRule {
    * @return edges to be deleted.
    */
   public Set<GrooveEdge> getEdgesToBeDeleted() {
-    return new LinkedHashSet<>(this.edgesToBeDeleted.values());
+    return Collections.unmodifiableSet(this.edgesToBeDeleted);
   }
 
   /**
@@ -176,7 +200,7 @@ public class GrooveGraphRule implements GraphTransformationRule {
    * @return context edges.
    */
   public Set<GrooveEdge> getContextEdges() {
-    return new LinkedHashSet<>(this.contextEdges.values());
+    return Collections.unmodifiableSet(this.contextEdges);
   }
 
   /**
@@ -185,17 +209,19 @@ public class GrooveGraphRule implements GraphTransformationRule {
    * @return nac edges.
    */
   public Set<GrooveEdge> getNacEdges() {
-    return new LinkedHashSet<>(this.nacEdges.values());
+    return Collections.unmodifiableSet(this.nacEdges);
   }
 
   /**
-   * All context and added nodes.
+   * All context and added nodes. Creates a new map, use {@link #getNode(long)} and {@link
+   * #getNodeAspect(long)} for lookups.
    *
    * @return nodes.
    */
   public Map<String, GrooveNode> getContextAndAddedNodes() {
-    Map<String, GrooveNode> addedAndContextNodes = new HashMap<>(this.nodesToBeAdded);
-    addedAndContextNodes.putAll(this.contextNodes); // the maps are distinct, see add methods.
+    Map<String, GrooveNode> addedAndContextNodes = new HashMap<>();
+    this.nodesToBeAdded.forEach(node -> addedAndContextNodes.put(node.getId(), node));
+    this.contextNodes.forEach(node -> addedAndContextNodes.put(node.getId(), node));
     return addedAndContextNodes;
   }
 
@@ -205,19 +231,87 @@ public class GrooveGraphRule implements GraphTransformationRule {
    * @return nodes to be deleted.
    */
   public Set<GrooveNode> getNodesToBeDeleted() {
-    return new LinkedHashSet<>(this.nodesToBeDeleted.values());
+    return Collections.unmodifiableSet(this.nodesToBeDeleted);
   }
 
   /**
-   * Get all nodes.
+   * Get all nodes by id in the order they were added to the rule. Creates a new map, use {@link
+   * #getNode(long)} for lookups.
    *
    * @return all nodes.
    */
   public Map<String, GrooveNode> getAllNodes() {
-    Map<String, GrooveNode> allNodes = new LinkedHashMap<>(this.nodesToBeDeleted);
-    allNodes.putAll(this.nodesToBeAdded);
-    allNodes.putAll(this.contextNodes);
-    allNodes.putAll(this.nacNodes);
+    Map<String, GrooveNode> allNodes = new LinkedHashMap<>();
+    this.idToNode.values().forEach(node -> allNodes.put(node.getId(), node));
     return allNodes;
   }
+
+  /**
+   * Get a node of the rule by numeric id regardless of its aspect.
+   *
+   * @param numericNodeId numeric node id, see {@link GrooveNode#getNumericId()}.
+   * @return the node or null if the rule does not contain a node with the id.
+   */
+  public GrooveNode getNode(long numericNodeId) {
+    return this.idToNode.get(numericNodeId);
+  }
+
+  /**
+   * Get the aspect of a node in the rule, i.e., if it is added, deleted, context, or a NAC node.
+   *
+   * @param numericNodeId numeric node id, see {@link GrooveNode#getNumericId()}.
+   * @return the aspect or null if the rule does not contain a node with the id.
+   */
+  public NodeRuleAspect getNodeAspect(long numericNodeId) {
+    return this.idToNodeAspect.get(numericNodeId);
+  }
+
+  /**
+   * Get the edge with the given source, name, target, and aspect.
+   *
+   * @param numericSourceId numeric id of the source node.
+   * @param name edge name.
+   * @param numericTargetId numeric id of the target node.
+   * @param aspect aspect of the edge.
+   * @return the edge or null if the rule does not contain such an edge.
+   */
+  public GrooveEdge getEdge(
+      long numericSourceId, String name, long numericTargetId, NodeRuleAspect aspect) {
+    return this.keyToEdge.get(new EdgeKey(numericSourceId, name, numericTargetId, aspect));
+  }
+
+  /**
+   * Get the aspect of an edge in the rule, i.e., if it is added, deleted, context, or a NAC edge.
+   *
+   * @param numericEdgeId numeric edge id, see {@link GrooveEdge#getNumericId()}.
+   * @return the aspect or null if the rule does not contain an edge with the id.
+   */
+  public NodeRuleAspect getEdgeAspect(long numericEdgeId) {
+    return this.idToEdgeAspect.get(numericEdgeId);
+  }
+
+  /**
+   * Get the edges of all aspects starting at a node in the order they were added.
+   *
+   * @param numericNodeId numeric node id, see {@link GrooveNode#getNumericId()}.
+   * @return outgoing edges.
+   */
+  public List<GrooveEdge> getOutgoingEdges(long numericNodeId) {
+    return Collections.unmodifiableList(
+        this.nodeIdToOutgoingEdges.getOrDefault(numericNodeId, List.of()));
+  }
+
+  /**
+   * Get the edges of all aspects ending at a node in the order they were added.
+   *
+   * @param numericNodeId numeric node id, see {@link GrooveNode#getNumericId()}.
+   * @return incoming edges.
+   */
+  public List<GrooveEdge> getIncomingEdges(long numericNodeId) {
+    return Collections.unmodifiableList(
+        this.nodeIdToIncomingEdges.getOrDefault(numericNodeId, List.of()));
+  }
+
+  /** Identifies an edge by its structure instead of its id. */
+  private record EdgeKey(long sourceId, String name, long targetId, NodeRuleAspect aspect) {}
 }
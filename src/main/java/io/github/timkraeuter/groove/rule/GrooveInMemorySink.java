@@ -0,0 +1,53 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps written files in memory, for example, to send a generated graph transformation system over
+ * the network without writing it to disk.
+ */
+public class GrooveInMemorySink implements GrooveOutputSink {
+  private final Map<String, byte[]> nameToContent;
+
+  /** Create an empty in-memory sink. */
+  public GrooveInMemorySink() {
+    this.nameToContent = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public void write(String name, ContentWriter content) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      content.write(out);
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(
+          String.format("The file %s could not be written.", name), e);
+    }
+    nameToContent.put(name, out.toByteArray());
+  }
+
+  /**
+   * Returns the content of a written file.
+   *
+   * @param name name of the file.
+   * @return content or null if no file with the name was written.
+   */
+  public byte[] getFile(String name) {
+    return nameToContent.get(name);
+  }
+
+  /**
+   * Returns all written files.
+   *
+   * @return unmodifiable map from file names to contents sorted by file name.
+   */
+  public Map<String, byte[]> getFiles() {
+    return Collections.unmodifiableMap(new TreeMap<>(nameToContent));
+  }
+}
@@ -0,0 +1,231 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches computed layouts by the shape of the layouted graph, i.e., the label widths of its nodes,
+ * its edges, and the layout options which change the result. The layout time budget is not part of
+ * the key, since only completed layouts are cached. Rules and graphs which only differ in their
+ * labels but not in the label lengths reuse the layout of the first one. The least recently
+ * used layouts are evicted once the cache is full. The cache can be saved to disk and loaded again
+ * to reuse layouts across runs. It can be shared by concurrent writes.
+ */
+public class GrooveLayoutCache {
+  private static final int FILE_FORMAT_VERSION = 3;
+
+  private final int maxEntries;
+  // Layouts by the hash of their shape. The shape is kept to verify hits.
+  private final Map<Long, CachedLayout> hashToLayout;
+
+  /**
+   * Create an empty layout cache.
+   *
+   * @param maxEntries maximum number of cached layouts (at least 1).
+   */
+  public GrooveLayoutCache(int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("The layout cache must hold at least one entry!");
+    }
+    this.maxEntries = maxEntries;
+    // Access order for LRU eviction.
+    this.hashToLayout =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Long, CachedLayout> eldest) {
+            return size() > GrooveLayoutCache.this.maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Load a layout cache saved using {@link #save(Path)}. An empty cache is returned if the file
+   * does not exist.
+   *
+   * @param file cache file.
+   * @param maxEntries maximum number of cached layouts (at least 1).
+   * @return loaded layout cache.
+   */
+  public static GrooveLayoutCache load(Path file, int maxEntries) {
+    GrooveLayoutCache cache = new GrooveLayoutCache(maxEntries);
+    if (!Files.exists(file)) {
+      return cache;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      int version = in.readInt();
+      if (version != FILE_FORMAT_VERSION) {
+        throw new IllegalArgumentException(
+            String.format("The layout cache %s has the unsupported version %s!", file, version));
+      }
+      int entries = in.readInt();
+      for (int i = 0; i < entries; i++) {
+        Shape shape =
+            new Shape(in.readInt(), in.readBoolean(), readDoubles(in), readInts(in), readInts(in));
+        cache.put(shape, new Positions(readDoubles(in), readDoubles(in)));
+      }
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+    return cache;
+  }
+
+  /**
+   * Save the cached layouts, such that they can be loaded using {@link #load(Path, int)}.
+   *
+   * @param file cache file. Replaced if it already exists.
+   */
+  public void save(Path file) {
+    List<CachedLayout> entries;
+    synchronized (this) {
+      // Copy in LRU order, such that loading keeps the order.
+      entries = new ArrayList<>(hashToLayout.values());
+    }
+    AtomicFileWriter.write(
+        file,
+        outputStream -> {
+          DataOutputStream out = new DataOutputStream(outputStream);
+          out.writeInt(FILE_FORMAT_VERSION);
+          out.writeInt(entries.size());
+          for (CachedLayout entry : entries) {
+            Shape shape = entry.shape();
+            out.writeInt(shape.layoutSizeThreshold);
+            out.writeBoolean(shape.layoutComponentsSeparately);
+            writeDoubles(out, shape.nodeWidths);
+            writeInts(out, shape.edgeSources);
+            writeInts(out, shape.edgeTargets);
+            writeDoubles(out, entry.positions().xs());
+            writeDoubles(out, entry.positions().ys());
+          }
+          out.flush();
+        });
+  }
+
+  /**
+   * Returns the number of cached layouts.
+   *
+   * @return number of cached layouts.
+   */
+  public synchronized int size() {
+    return hashToLayout.size();
+  }
+
+  synchronized Positions get(Shape shape) {
+    CachedLayout layout = hashToLayout.get(shape.hash);
+    // Different shapes with the same hash are a miss.
+    if (layout == null || !layout.shape().equals(shape)) {
+      return null;
+    }
+    return layout.positions();
+  }
+
+  synchronized void put(Shape shape, Positions positions) {
+    hashToLayout.put(shape.hash, new CachedLayout(shape, positions));
+  }
+
+  private static double[] readDoubles(DataInputStream in) throws IOException {
+    double[] values = new double[in.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readDouble();
+    }
+    return values;
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException {
+    int[] values = new int[in.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+    out.writeInt(values.length);
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  /** Node positions of a computed layout by node index. Must not be modified. */
+  record Positions(double[] xs, double[] ys) {}
+
+  private record CachedLayout(Shape shape, Positions positions) {}
+
+  /**
+   * Shape of a layouted graph, i.e., the layout options which change the result, node widths by
+   * node index, and edges as source and target node indices. Shapes are equal if the options and
+   * arrays are equal. Must not be modified.
+   */
+  static final class Shape {
+    private final int layoutSizeThreshold;
+    private final boolean layoutComponentsSeparately;
+    private final double[] nodeWidths;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+    private final long hash;
+
+    Shape(
+        int layoutSizeThreshold,
+        boolean layoutComponentsSeparately,
+        double[] nodeWidths,
+        int[] edgeSources,
+        int[] edgeTargets) {
+      this.layoutSizeThreshold = layoutSizeThreshold;
+      this.layoutComponentsSeparately = layoutComponentsSeparately;
+      this.nodeWidths = nodeWidths;
+      this.edgeSources = edgeSources;
+      this.edgeTargets = edgeTargets;
+      long combined = combine(layoutSizeThreshold, layoutComponentsSeparately ? 1 : 0);
+      for (double nodeWidth : nodeWidths) {
+        combined = combine(combined, Double.doubleToLongBits(nodeWidth));
+      }
+      for (int i = 0; i < edgeSources.length; i++) {
+        combined = combine(combined, ((long) edgeSources[i] << 32) | edgeTargets[i]);
+      }
+      this.hash = combined;
+    }
+
+    private static long combine(long hash, long value) {
+      long combined = (hash ^ value) * 0x9E3779B97F4A7C15L;
+      return combined ^ (combined >>> 29) ^ Long.rotateLeft(hash, 17);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Shape shape)) {
+        return false;
+      }
+      return hash == shape.hash
+          && layoutSizeThreshold == shape.layoutSizeThreshold
+          && layoutComponentsSeparately == shape.layoutComponentsSeparately
+          && Arrays.equals(nodeWidths, shape.nodeWidths)
+          && Arrays.equals(edgeSources, shape.edgeSources)
+          && Arrays.equals(edgeTargets, shape.edgeTargets);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(hash);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Content hashes of the gxl files written to a directory. Writes using a manifest skip files whose
+ * content did not change since the last write, see {@link GrooveWriterOptions#manifest}. Files
+ * which were written last time but not this time can be deleted afterward.
+ */
+public class GrooveManifest {
+  /** Name of the manifest file in the directory. Hidden, such that groove ignores it. */
+  public static final String FILE_NAME = ".grg-manifest";
+
+  /** Separates the hash and the file name like sha256sum. */
+  private static final String SEPARATOR = "  ";
+
+  private final Path dir;
+  private final Map<String, String> previousHashes;
+  private final Map<String, String> currentHashes;
+
+  private GrooveManifest(Path dir, Map<String, String> previousHashes) {
+    this.dir = dir;
+    this.previousHashes = previousHashes;
+    this.currentHashes = new TreeMap<>();
+  }
+
+  /**
+   * Load the manifest of a directory. The manifest is empty if the directory has no manifest.
+   *
+   * @param dir directory.
+   * @return manifest.
+   */
+  public static GrooveManifest load(Path dir) {
+    Path manifestFile = dir.resolve(FILE_NAME);
+    Map<String, String> hashes = new HashMap<>();
+    if (Files.exists(manifestFile)) {
+      try {
+        List<String> lines = Files.readAllLines(manifestFile, StandardCharsets.UTF_8);
+        for (String line : lines) {
+          int separatorIndex = line.indexOf(SEPARATOR);
+          if (separatorIndex > 0) {
+            hashes.put(
+                line.substring(separatorIndex + SEPARATOR.length()),
+                line.substring(0, separatorIndex));
+          }
+        }
+      } catch (IOException e) {
+        throw new ShouldNotHappenRuntimeException(e);
+      }
+    }
+    return new GrooveManifest(dir, hashes);
+  }
+
+  /**
+   * Returns true if the manifest file of a directory exists.
+   *
+   * @param dir directory.
+   * @return true if the directory has a manifest.
+   */
+  public static boolean exists(Path dir) {
+    return Files.exists(dir.resolve(FILE_NAME));
+  }
+
+  /**
+   * Returns true if the file exists and was written with the given hash last time.
+   *
+   * @param name name of the file relative to the directory.
+   * @param hash content hash.
+   * @return true if the file does not need to be written again.
+   */
+  boolean isUnchanged(String name, String hash) {
+    String previousHash = previousHashes.get(name);
+    return hash.equals(previousHash) && Files.exists(dir.resolve(name));
+  }
+
+  /**
+   * Record the hash of a written or unchanged file.
+   *
+   * @param name name of the file relative to the directory.
+   * @param hash content hash.
+   */
+  synchronized void record(String name, String hash) {
+    currentHashes.put(name, hash);
+  }
+
+  /** Delete files which were recorded last time but not this time, for example, removed rules. */
+  public synchronized void deleteOrphans() {
+    for (String name : previousHashes.keySet()) {
+      if (!currentHashes.containsKey(name)) {
+        try {
+          Files.deleteIfExists(dir.resolve(name));
+        } catch (IOException e) {
+          throw new ShouldNotHappenRuntimeException(e);
+        }
+      }
+    }
+  }
+
+  /** Save the hashes recorded this time as the manifest of the directory. */
+  public synchronized void save() {
+    StringBuilder content = new StringBuilder();
+    // Sorted by file name to be deterministic.
+    currentHashes.forEach(
+        (name, hash) -> content.append(hash).append(SEPARATOR).append(name).append('\n'));
+    AtomicFileWriter.write(
+        dir.resolve(FILE_NAME),
+        out -> {
+          Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+          writer.write(content.toString());
+          writer.flush();
+        });
+  }
+}
@@ -0,0 +1,33 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Target of written rules, graphs, and other files of a graph transformation system, for example,
+ * a directory or an archive. Files are identified by names relative to the sink, which use forward
+ * slashes to separate folders. Sinks must support files written concurrently.
+ */
+public interface GrooveOutputSink {
+
+  /**
+   * Write a file. The file is replaced if it was written before.
+   *
+   * @param name name of the file relative to the sink.
+   * @param content writes the content of the file.
+   */
+  void write(String name, ContentWriter content);
+
+  /** Writes the content of a file to a buffered stream, which must not be closed. */
+  @FunctionalInterface
+  interface ContentWriter {
+
+    /**
+     * Write the content.
+     *
+     * @param out stream to write to.
+     * @throws IOException if writing fails.
+     */
+    void write(OutputStream out) throws IOException;
+  }
+}
@@ -0,0 +1,416 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import io.github.timkraeuter.groove.graph.GrooveEdge;
+import io.github.timkraeuter.groove.graph.GrooveGraph;
+import io.github.timkraeuter.groove.graph.GrooveIdContext;
+import io.github.timkraeuter.groove.graph.GrooveNode;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Helper class to read GT-Rules and graphs written for Groove, i.e., the inverse of the {@link
+ * GrooveRuleAndGraphWriter}. Files are parsed using StAX without creating the JAXB object model.
+ * The first unprefixed self-edge of a node is its name. Further self-edges are flags ("flag:"),
+ * rule aspects of the node ("new:", "del:", "not:"), or ordinary edges. Layout information is
+ * ignored. Read nodes and edges get new ids of the given id context. Data nodes become attributes
+ * of graph nodes, but rules with data nodes are rejected, since rules cannot contain attributes.
+ */
+public class GrooveRuleAndGraphReader {
+  private static final String ASPECT_LABEL_NEW = "new:";
+  private static final String ASPECT_LABEL_DEL = "del:";
+  private static final String ASPECT_LABEL_NOT = "not:";
+  private static final String FLAG = "flag:";
+  private static final String RULE_FILE_EXTENSION = ".gpr";
+
+  private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY =
+      ThreadLocal.withInitial(GrooveRuleAndGraphReader::createInputFactory);
+
+  private GrooveRuleAndGraphReader() {
+    // Helper class
+  }
+
+  /**
+   * Read a graph transformation rule using the global id context.
+   *
+   * @param file rule file (.gpr).
+   * @return read rule.
+   */
+  public static GrooveGraphRule readRule(Path file) {
+    return readRule(file, GrooveIdContext.global());
+  }
+
+  /**
+   * Read a graph transformation rule.
+   *
+   * @param file rule file (.gpr).
+   * @param idContext context allocating the ids of the read nodes and edges.
+   * @return read rule.
+   * @throws IllegalArgumentException if the rule contains attributes, i.e., edges to data nodes.
+   */
+  public static GrooveGraphRule readRule(Path file, GrooveIdContext idContext) {
+    return toRule(parse(file), idContext);
+  }
+
+  /**
+   * Read a graph transformation rule.
+   *
+   * @param in stream of a rule file (.gpr). It is not closed.
+   * @param idContext context allocating the ids of the read nodes and edges.
+   * @return read rule.
+   */
+  public static GrooveGraphRule readRule(InputStream in, GrooveIdContext idContext) {
+    return toRule(parse(in, "stream"), idContext);
+  }
+
+  /**
+   * Read all graph transformation rules in a directory and its subdirectories, for example, of a
+   * graph grammar (.gps).
+   *
+   * @param dir directory.
+   * @param idContext context allocating the ids of the read nodes and edges.
+   * @return read rules ordered by their file path.
+   */
+  public static List<GrooveGraphRule> readRules(Path dir, GrooveIdContext idContext) {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files
+          .filter(file -> file.getFileName().toString().endsWith(RULE_FILE_EXTENSION))
+          .sorted()
+          .map(file -> readRule(file, idContext))
+          .toList();
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(
+          String.format("The rules in %s could not be read.", dir), e);
+    }
+  }
+
+  /**
+   * Read a graph using the global id context.
+   *
+   * @param file graph file (.gst).
+   * @return read graph.
+   */
+  public static GrooveGraph readGraph(Path file) {
+    return readGraph(file, GrooveIdContext.global());
+  }
+
+  /**
+   * Read a graph. Data nodes ("int:", "bool:", "string:") become attributes of the nodes pointing
+   * to them.
+   *
+   * @param file graph file (.gst).
+   * @param idContext context allocating the ids of the read nodes and edges.
+   * @return read graph.
+   */
+  public static GrooveGraph readGraph(Path file, GrooveIdContext idContext) {
+    return toGraph(parse(file), idContext);
+  }
+
+  /**
+   * Read a graph. Data nodes ("int:", "bool:", "string:") become attributes of the nodes pointing
+   * to them.
+   *
+   * @param in stream of a graph file (.gst). It is not closed.
+   * @param idContext context allocating the ids of the read nodes and edges.
+   * @return read graph.
+   */
+  public static GrooveGraph readGraph(InputStream in, GrooveIdContext idContext) {
+    return toGraph(parse(in, "stream"), idContext);
+  }
+
+  private static GrooveGraphRule toRule(ParsedGraph parsedGraph, GrooveIdContext idContext) {
+    for (ParsedEdge parsedEdge : parsedGraph.edges) {
+      ParsedNode target = parsedGraph.nodes.get(parsedEdge.targetId);
+      if (!parsedEdge.isSelfEdge() && target.isDataNode()) {
+        // Would otherwise be read as a node named like the value, which changes the rule.
+        throw new IllegalArgumentException(
+            String.format(
+                "The edge %s from %s to the data node %s in rule %s is an attribute, but rules"
+                    + " with attributes are not supported!",
+                parsedEdge.label, parsedEdge.sourceId, target.label, parsedGraph.graphId));
+      }
+    }
+    GrooveGraphRule rule = new GrooveGraphRule(parsedGraph.graphId);
+    Map<String, GrooveNode> idToNode = new LinkedHashMap<>();
+    parsedGraph.nodes.forEach(
+        (id, parsedNode) -> {
+          GrooveNode node = parsedNode.createNode(idContext);
+          idToNode.put(id, node);
+          switch (getAspect(parsedNode.aspectLabel)) {
+            case ADD -> rule.addNewNode(node);
+            case DEL -> rule.addDelNode(node);
+            case CONTEXT -> rule.addContextNode(node);
+            case NOT -> rule.addNacNode(node);
+          }
+        });
+    for (ParsedEdge parsedEdge : parsedGraph.edges) {
+      String aspectLabel = getAspectLabel(parsedEdge.label);
+      GrooveEdge edge =
+          new GrooveEdge(
+              parsedEdge.label.substring(aspectLabel.length()),
+              idToNode.get(parsedEdge.sourceId),
+              idToNode.get(parsedEdge.targetId),
+              idContext);
+      switch (getAspect(aspectLabel)) {
+        case ADD -> rule.addNewEdge(edge);
+        case DEL -> rule.addDelEdge(edge);
+        case CONTEXT -> rule.addContextEdge(edge);
+        case NOT -> rule.addNacEdge(edge);
+      }
+    }
+    return rule;
+  }
+
+  private static GrooveGraph toGraph(ParsedGraph parsedGraph, GrooveIdContext idContext) {
+    Set<String> dataNodeIds = new LinkedHashSet<>();
+    for (ParsedEdge parsedEdge : parsedGraph.edges) {
+      ParsedNode target = parsedGraph.nodes.get(parsedEdge.targetId);
+      if (!parsedEdge.isSelfEdge() && target.isDataNode()) {
+        dataNodeIds.add(parsedEdge.targetId);
+      }
+    }
+    Map<String, GrooveNode> idToNode = new LinkedHashMap<>();
+    parsedGraph.nodes.forEach(
+        (id, parsedNode) -> {
+          if (!dataNodeIds.contains(id)) {
+            idToNode.put(id, parsedNode.createNode(idContext));
+          }
+        });
+    Set<GrooveEdge> edges = new LinkedHashSet<>();
+    for (ParsedEdge parsedEdge : parsedGraph.edges) {
+      if (dataNodeIds.contains(parsedEdge.sourceId)) {
+        throw new IllegalArgumentException(
+            String.format(
+                "The edge %s from %s to %s in graph %s starts at a data node, which is read as an"
+                    + " attribute value!",
+                parsedEdge.label, parsedEdge.sourceId, parsedEdge.targetId, parsedGraph.graphId));
+      }
+      GrooveNode source = idToNode.get(parsedEdge.sourceId);
+      if (dataNodeIds.contains(parsedEdge.targetId)) {
+        addAttribute(source, parsedEdge.label, parsedGraph.nodes.get(parsedEdge.targetId).label);
+      } else {
+        GrooveNode target = idToNode.get(parsedEdge.targetId);
+        edges.add(new GrooveEdge(parsedEdge.label, source, target, idContext));
+      }
+    }
+    return new GrooveGraph(parsedGraph.graphId, new LinkedHashSet<>(idToNode.values()), edges);
+  }
+
+  private static void addAttribute(GrooveNode node, String attributeName, String dataNodeLabel) {
+    int separatorIndex = dataNodeLabel.indexOf(':');
+    String value = dataNodeLabel.substring(separatorIndex + 1);
+    switch (dataNodeLabel.substring(0, separatorIndex)) {
+      case "int" -> node.addAttribute(attributeName, Integer.parseInt(value));
+      case "bool" -> node.addAttribute(attributeName, Boolean.parseBoolean(value));
+      default -> node.addAttribute(attributeName, unquote(value));
+    }
+  }
+
+  private static String unquote(String value) {
+    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+      return value.substring(1, value.length() - 1);
+    }
+    return value;
+  }
+
+  private static String getAspectLabel(String label) {
+    for (String aspectLabel : List.of(ASPECT_LABEL_NEW, ASPECT_LABEL_DEL, ASPECT_LABEL_NOT)) {
+      if (label.startsWith(aspectLabel)) {
+        return aspectLabel;
+      }
+    }
+    return "";
+  }
+
+  private static NodeRuleAspect getAspect(String aspectLabel) {
+    return switch (aspectLabel) {
+      case ASPECT_LABEL_NEW -> NodeRuleAspect.ADD;
+      case ASPECT_LABEL_DEL -> NodeRuleAspect.DEL;
+      case ASPECT_LABEL_NOT -> NodeRuleAspect.NOT;
+      default -> NodeRuleAspect.CONTEXT;
+    };
+  }
+
+  private static ParsedGraph parse(Path file) {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      return parse(in, file.toString());
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(
+          String.format("The file %s could not be read.", file), e);
+    }
+  }
+
+  private static ParsedGraph parse(InputStream in, String source) {
+    try {
+      XMLStreamReader xml = INPUT_FACTORY.get().createXMLStreamReader(in);
+      try {
+        return parse(xml, source);
+      } finally {
+        xml.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new ShouldNotHappenRuntimeException(
+          String.format("The gxl in %s could not be parsed.", source), e);
+    }
+  }
+
+  /** Parses the first graph of a gxl document. */
+  private static ParsedGraph parse(XMLStreamReader xml, String source) throws XMLStreamException {
+    ParsedGraph parsedGraph = null;
+    String edgeSourceId = null;
+    String edgeTargetId = null;
+    String edgeLabel = null;
+    String attrName = null;
+    while (xml.hasNext()) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        switch (xml.getLocalName()) {
+          case "graph" -> {
+            if (parsedGraph != null) {
+              // Only the first graph is read.
+              return parsedGraph;
+            }
+            parsedGraph = new ParsedGraph(xml.getAttributeValue(null, "id"));
+          }
+          case "node" -> getGraph(parsedGraph, source).addNode(xml.getAttributeValue(null, "id"));
+          case "edge" -> {
+            edgeSourceId = xml.getAttributeValue(null, "from");
+            edgeTargetId = xml.getAttributeValue(null, "to");
+          }
+          case "attr" -> attrName = xml.getAttributeValue(null, "name");
+          case "string" -> {
+            if (edgeSourceId != null && "label".equals(attrName)) {
+              edgeLabel = xml.getElementText();
+            }
+          }
+          default -> {
+            // Other elements and attributes, for example, layout, are not needed.
+          }
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        switch (xml.getLocalName()) {
+          case "edge" -> {
+            getGraph(parsedGraph, source).addEdge(edgeSourceId, edgeTargetId, edgeLabel);
+            edgeSourceId = null;
+            edgeTargetId = null;
+            edgeLabel = null;
+          }
+          case "attr" -> attrName = null;
+          default -> {
+            // Nothing to do.
+          }
+        }
+      }
+    }
+    return getGraph(parsedGraph, source);
+  }
+
+  private static ParsedGraph getGraph(ParsedGraph parsedGraph, String source) {
+    if (parsedGraph == null) {
+      throw new IllegalArgumentException(
+          String.format("The gxl in %s does not contain a graph!", source));
+    }
+    return parsedGraph;
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+    // Gxl files do not need DTDs, and external entities should never be resolved.
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /** Nodes and edges of a gxl graph before they are turned into a rule or graph. */
+  private static class ParsedGraph {
+    private final String graphId;
+    private final Map<String, ParsedNode> nodes;
+    private final List<ParsedEdge> edges;
+
+    ParsedGraph(String graphId) {
+      this.graphId = graphId;
+      this.nodes = new LinkedHashMap<>();
+      this.edges = new ArrayList<>();
+    }
+
+    void addNode(String id) {
+      nodes.put(id, new ParsedNode());
+    }
+
+    /** Self-edges describing the node itself are added to the node instead. */
+    void addEdge(String sourceId, String targetId, String label) {
+      ParsedNode source = nodes.get(sourceId);
+      if (source == null || !nodes.containsKey(targetId) || label == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "The edge from %s to %s in graph %s must have a label and known nodes!",
+                sourceId, targetId, graphId));
+      }
+      ParsedEdge edge = new ParsedEdge(sourceId, targetId, label);
+      if (!edge.isSelfEdge() || !source.describedBy(label)) {
+        edges.add(edge);
+      }
+    }
+  }
+
+  private static class ParsedNode {
+    private String label;
+    private String aspectLabel;
+    private final Set<String> flags;
+
+    ParsedNode() {
+      this.label = null;
+      this.aspectLabel = "";
+      this.flags = new LinkedHashSet<>();
+    }
+
+    /** Returns true if the self-edge label describes the name, a flag, or the aspect. */
+    boolean describedBy(String selfEdgeLabel) {
+      if (selfEdgeLabel.startsWith(FLAG)) {
+        flags.add(selfEdgeLabel.substring(FLAG.length()));
+        return true;
+      }
+      String selfEdgeAspectLabel = getAspectLabel(selfEdgeLabel);
+      if (!selfEdgeAspectLabel.isEmpty() && selfEdgeAspectLabel.equals(selfEdgeLabel)) {
+        aspectLabel = selfEdgeAspectLabel;
+        return true;
+      }
+      if (label == null && selfEdgeAspectLabel.isEmpty()) {
+        label = selfEdgeLabel;
+        return true;
+      }
+      return false;
+    }
+
+    boolean isDataNode() {
+      return label != null
+          && (label.startsWith("int:") || label.startsWith("bool:") || label.startsWith("string:"));
+    }
+
+    GrooveNode createNode(GrooveIdContext idContext) {
+      GrooveNode node = new GrooveNode(label == null ? "" : label, idContext);
+      flags.forEach(node::addFlag);
+      return node;
+    }
+  }
+
+  private record ParsedEdge(String sourceId, String targetId, String label) {
+    boolean isSelfEdge() {
+      return sourceId.equals(targetId);
+    }
+  }
+}
@@ -1,17 +1,24 @@
 package io.github.timkraeuter.groove.rule;
 
+import io.github.timkraeuter.groove.graph.CompactGrooveGraph;
 import io.github.timkraeuter.groove.graph.GrooveEdge;
 import io.github.timkraeuter.groove.graph.GrooveGraph;
 import io.github.timkraeuter.groove.graph.GrooveNode;
 import io.github.timkraeuter.groove.graph.GrooveValue;
-import io.github.timkraeuter.groove.gxl.Graph;
-import io.github.timkraeuter.groove.gxl.Gxl;
-import io.github.timkraeuter.groove.gxl.Node;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Stream;
 
 /** Helper class to write GT-Rules for Groove. */
@@ -24,6 +31,15 @@ public class GrooveRuleAndGraphWriter {
   private static final String ASPECT_LABEL_NEW = "new:";
   private static final String ASPECT_LABEL_DEL = "del:";
   private static final String ASPECT_LABEL_NOT = "not:";
+  private static final String FLAG = "flag:";
+
+  /**
+   * Pre-warm the XML marshalling, i.e., create the JAXB context which is shared by all writes in
+   * this JVM. Calling this at startup is optional, otherwise the first write initializes it.
+   */
+  public static void warmUp() {
+    GxlToXMLConverter.warmUp();
+  }
 
   /**
    * Write graph transformation rules.
@@ -33,76 +49,180 @@ public class GrooveRuleAndGraphWriter {
    * @param layout set to true to layout the rules.
    */
   public static void writeRules(Path dir, Stream<GrooveGraphRule> rules, boolean layout) {
-    rules.forEach(
-        grooveGraphRule -> {
-          // Create gxl with a graph for each rule
-          Gxl gxl = new Gxl();
-          Graph graph = GrooveGxlHelper.createStandardGxlGraph(grooveGraphRule.getRuleName(), gxl);
-
-          Map<String, Node> allGxlNodes = new HashMap<>();
-          // Add nodes which should be added to gxl
-          grooveGraphRule
-              .getNodesToBeAdded()
-              .forEach(
-                  toBeAddedNode ->
-                      addNodeToGxlGraph(graph, toBeAddedNode, allGxlNodes, NodeRuleAspect.ADD));
-
-          // Add nodes which should be deleted to gxl
-          grooveGraphRule
-              .getNodesToBeDeleted()
-              .forEach(
-                  toBeDeletedNode ->
-                      addNodeToGxlGraph(graph, toBeDeletedNode, allGxlNodes, NodeRuleAspect.DEL));
-
-          // Add nodes which should be in context
-          grooveGraphRule
-              .getContextNodes()
-              .forEach(
-                  contextNode ->
-                      addNodeToGxlGraph(graph, contextNode, allGxlNodes, NodeRuleAspect.CONTEXT));
-
-          // Add NAC nodes
-          grooveGraphRule
-              .getNACNodes()
-              .forEach(
-                  contextNode ->
-                      addNodeToGxlGraph(graph, contextNode, allGxlNodes, NodeRuleAspect.NOT));
-
-          // Add edges which should be added to gxl
-          grooveGraphRule
-              .getEdgesToBeAdded()
-              .forEach(
-                  toBeAddedEdge ->
-                      addEdgeToGxlGraph(graph, toBeAddedEdge, allGxlNodes, NodeRuleAspect.ADD));
-
-          // Add edges which should be deleted to gxl
-          grooveGraphRule
-              .getEdgesToBeDeleted()
-              .forEach(
-                  toBeDeletedEdge ->
-                      addEdgeToGxlGraph(graph, toBeDeletedEdge, allGxlNodes, NodeRuleAspect.DEL));
-
-          // Add context edges to gxl
-          grooveGraphRule
-              .getContextEdges()
-              .forEach(
-                  toBeDeletedEdge ->
-                      addEdgeToGxlGraph(
-                          graph, toBeDeletedEdge, allGxlNodes, NodeRuleAspect.CONTEXT));
-
-          // Add nac edges to gxl
-          grooveGraphRule
-              .getNacEdges()
-              .forEach(
-                  toBeDeletedEdge ->
-                      addEdgeToGxlGraph(graph, toBeDeletedEdge, allGxlNodes, NodeRuleAspect.NOT));
-
-          layoutRuleIfConfigured(layout, grooveGraphRule, graph);
-          // Write each rule to a file
-          writeRuleToFile(dir, grooveGraphRule, gxl);
+    writeRules(dir, rules, new GrooveWriterOptions().layout(layout));
+  }
+
+  /**
+   * Write graph transformation rules.
+   *
+   * @param dir target directory where to write the rules.
+   * @param rules stream of GT rules.
+   * @param options writer options.
+   */
+  public static void writeRules(
+      Path dir, Stream<GrooveGraphRule> rules, GrooveWriterOptions options) {
+    writeRules(new GrooveDirectorySink(dir), rules, options);
+  }
+
+  /**
+   * Write graph transformation rules to a sink.
+   *
+   * @param sink sink where to write the rules.
+   * @param rules stream of GT rules.
+   * @param options writer options.
+   */
+  public static void writeRules(
+      GrooveOutputSink sink, Stream<GrooveGraphRule> rules, GrooveWriterOptions options) {
+    Stream<GrooveGraphRule> rulesToWrite = rules;
+    if (options.getRuleDeduplicator() != null) {
+      options.getRuleDeduplicator().startWrite();
+      rulesToWrite = options.getRuleDeduplicator().deduplicate(rules);
+    }
+    if (options.getParallelism() > 1) {
+      writeRulesInParallel(sink, rulesToWrite, options);
+      return;
+    }
+    if (options.isLayout() && options.getLayoutParallelism() > 1) {
+      writeRulesWithConcurrentLayout(sink, rulesToWrite, options);
+      return;
+    }
+    rulesToWrite.forEach(grooveGraphRule -> writeRule(sink, grooveGraphRule, options));
+  }
+
+  private static void writeRulesInParallel(
+      GrooveOutputSink sink, Stream<GrooveGraphRule> rules, GrooveWriterOptions options) {
+    runWithExecutor(
+        options,
+        options.getParallelism(),
+        executor -> {
+          GrooveWriterOptions taskOptions = getWriterThreadOptions(options);
+          // Allow some queued rules per worker such that workers do not wait for the stream.
+          ParallelWriteTasks tasks = new ParallelWriteTasks(executor, options.getParallelism() * 2);
+          rules.forEach(
+              grooveGraphRule ->
+                  tasks.submit(
+                      grooveGraphRule.getRuleName(),
+                      () -> writeRule(sink, grooveGraphRule, taskOptions)));
+          tasks.awaitCompletion();
+        });
+  }
+
+  /**
+   * Layouts the rules concurrently, while the layouted rules are written one after another on the
+   * calling thread in stream order.
+   */
+  private static void writeRulesWithConcurrentLayout(
+      GrooveOutputSink sink, Stream<GrooveGraphRule> rules, GrooveWriterOptions options) {
+    int maxPendingLayouts = options.getLayoutParallelism() * 2;
+    runWithExecutor(
+        options,
+        options.getLayoutParallelism(),
+        executor -> {
+          GrooveWriterOptions taskOptions = getWriterThreadOptions(options);
+          Deque<PendingLayout> pendingLayouts = new ArrayDeque<>();
+          rules.forEach(
+              grooveGraphRule -> {
+                Consumer<GxlGraphHandler> elements = getRuleElements(grooveGraphRule, options);
+                String hash =
+                    computeContentHashIfNeeded(grooveGraphRule.getRuleName(), elements, options);
+                if (isUnchanged(getRuleFileName(grooveGraphRule), hash, options)) {
+                  return;
+                }
+                if (pendingLayouts.size() == maxPendingLayouts) {
+                  writeLayoutedRule(sink, pendingLayouts.removeFirst(), options);
+                }
+                pendingLayouts.addLast(
+                    new PendingLayout(
+                        grooveGraphRule,
+                        hash,
+                        CompletableFuture.supplyAsync(
+                            () -> computeLayout(elements, taskOptions), executor)));
+              });
+          while (!pendingLayouts.isEmpty()) {
+            writeLayoutedRule(sink, pendingLayouts.removeFirst(), options);
+          }
         });
   }
 
+  private static void writeLayoutedRule(
+      GrooveOutputSink sink, PendingLayout pendingLayout, GrooveWriterOptions options) {
+    GxlLayout layout;
+    try {
+      layout = pendingLayout.layout().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    GrooveGraphRule grooveGraphRule = pendingLayout.rule();
+    String fileName = getRuleFileName(grooveGraphRule);
+    writeGxl(
+        sink,
+        fileName,
+        grooveGraphRule.getRuleName(),
+        getRuleElements(grooveGraphRule, options),
+        layout,
+        options);
+    recordHash(fileName, pendingLayout.hash(), options);
+  }
+
+  /**
+   * Returns the options for threads which write or layout rules concurrently. These threads layout
+   * the connected components of a rule one after another instead of waiting for further tasks on
+   * the executor.
+   */
+  static GrooveWriterOptions getWriterThreadOptions(GrooveWriterOptions options) {
+    return options.copy().layoutParallelism(1);
+  }
+
+  /**
+   * Runs the action using the configured executor or a temporary thread pool, which is shut down
+   * afterward.
+   */
+  static void runWithExecutor(
+      GrooveWriterOptions options, int threads, Consumer<Executor> action) {
+    if (options.getExecutor() != null) {
+      action.accept(options.getExecutor());
+      return;
+    }
+    ExecutorService temporaryExecutor = Executors.newFixedThreadPool(threads);
+    try {
+      action.accept(temporaryExecutor);
+    } finally {
+      temporaryExecutor.shutdown();
+    }
+  }
+
+  static void writeRule(
+      GrooveOutputSink sink, GrooveGraphRule grooveGraphRule, GrooveWriterOptions options) {
+    // Write each rule to a file
+    writeGxl(
+        sink,
+        getRuleFileName(grooveGraphRule),
+        grooveGraphRule.getRuleName(),
+        getRuleElements(grooveGraphRule, options),
+        options);
+  }
+
+  private static Consumer<GxlGraphHandler> getRuleElements(
+      GrooveGraphRule grooveGraphRule, GrooveWriterOptions options) {
+    return withReproducibleIds(handler -> emitRule(grooveGraphRule, handler), options);
+  }
+
+  /** Renumbers the nodes of each emission starting from 0 if the output should be reproducible. */
+  private static Consumer<GxlGraphHandler> withReproducibleIds(
+      Consumer<GxlGraphHandler> elements, GrooveWriterOptions options) {
+    if (!options.isReproducible()) {
+      return elements;
+    }
+    return handler -> elements.accept(new GxlIdRenumberer(handler));
+  }
+
+  private static String getRuleFileName(GrooveGraphRule grooveGraphRule) {
+    return grooveGraphRule.getRuleName() + ".gpr";
+  }
+
   /**
    * Write a graph to disk for groove to consume.
    *
@@ -112,118 +232,290 @@ public class GrooveRuleAndGraphWriter {
    * @param layout true if the graph should be layouted.
    */
   public static void writeGraph(Path dir, String fileName, GrooveGraph graph, boolean layout) {
-    Gxl gxl = createGxlFromGrooveGraph(graph, layout);
-    GxlToXMLConverter.toXml(gxl, Paths.get(dir.toString(), fileName));
+    writeGraph(dir, fileName, graph, new GrooveWriterOptions().layout(layout));
   }
 
-  private static Gxl createGxlFromGrooveGraph(GrooveGraph graph, boolean layout) {
-    Gxl gxl = new Gxl();
-    io.github.timkraeuter.groove.gxl.Graph gxlGraph =
-        GrooveGxlHelper.createStandardGxlGraph(graph.getName(), gxl);
+  /**
+   * Write a graph to disk for groove to consume.
+   *
+   * @param dir directory
+   * @param fileName file name of the graph
+   * @param graph graph
+   * @param options writer options.
+   */
+  public static void writeGraph(
+      Path dir, String fileName, GrooveGraph graph, GrooveWriterOptions options) {
+    writeGraph(new GrooveDirectorySink(dir), fileName, graph, options);
+  }
+
+  /**
+   * Write a graph to a sink for groove to consume.
+   *
+   * @param sink sink where to write the graph.
+   * @param fileName file name of the graph
+   * @param graph graph
+   * @param options writer options.
+   */
+  public static void writeGraph(
+      GrooveOutputSink sink, String fileName, GrooveGraph graph, GrooveWriterOptions options) {
+    // Data nodes get the ids following the largest node id of the graph. Thus, they do not depend
+    // on other graphs and are the same if the graph is emitted more than once.
+    long firstDataNodeId = graph.nodes().mapToLong(GrooveNode::getNumericId).max().orElse(-1) + 1;
+    writeGxl(
+        sink,
+        fileName,
+        graph.getName(),
+        withReproducibleIds(
+            handler -> emitGraph(graph, handler, new AtomicLong(firstDataNodeId)::getAndIncrement),
+            options),
+        options);
+  }
+
+  /**
+   * Write a compact graph to disk for groove to consume.
+   *
+   * @param dir directory
+   * @param fileName file name of the graph
+   * @param graph compact graph
+   * @param options writer options.
+   */
+  public static void writeGraph(
+      Path dir, String fileName, CompactGrooveGraph graph, GrooveWriterOptions options) {
+    writeGraph(new GrooveDirectorySink(dir), fileName, graph, options);
+  }
+
+  /**
+   * Write a compact graph to a sink for groove to consume. The graph is emitted directly from its
+   * arrays, i.e., without creating node and edge objects.
+   *
+   * @param sink sink where to write the graph.
+   * @param fileName file name of the graph
+   * @param graph compact graph
+   * @param options writer options.
+   */
+  public static void writeGraph(
+      GrooveOutputSink sink,
+      String fileName,
+      CompactGrooveGraph graph,
+      GrooveWriterOptions options) {
+    writeGxl(
+        sink,
+        fileName,
+        graph.getName(),
+        withReproducibleIds(handler -> emitCompactGraph(graph, handler), options),
+        options);
+  }
 
-    Map<String, String> idToNodeLabel = new HashMap<>();
-    Map<String, Node> grooveNodeIdToGxlNode = new HashMap<>();
+  /**
+   * Writes a gxl file containing one graph using the configured backend. The elements of the graph
+   * are emitted once for writing and one additional time if the graph should be layouted.
+   */
+  private static void writeGxl(
+      GrooveOutputSink sink,
+      String fileName,
+      String graphId,
+      Consumer<GxlGraphHandler> elements,
+      GrooveWriterOptions options) {
+    String hash = computeContentHashIfNeeded(graphId, elements, options);
+    if (isUnchanged(fileName, hash, options)) {
+      return;
+    }
+    GxlLayout layout = options.isLayout() ? computeLayout(elements, options) : null;
+    writeGxl(sink, fileName, graphId, elements, layout, options);
+    recordHash(fileName, hash, options);
+  }
 
+  /** Returns the content hash if a manifest is configured, otherwise null. */
+  private static String computeContentHashIfNeeded(
+      String graphId, Consumer<GxlGraphHandler> elements, GrooveWriterOptions options) {
+    if (options.getManifest() == null) {
+      return null;
+    }
+    // All settings which change the content of the file. The backend does not.
+    String settings =
+        String.format(
+            "layout=%s,format=%s,layoutSizeThreshold=%s,layoutComponentsSeparately=%s",
+            options.isLayout(),
+            options.getFormat(),
+            options.getLayoutSizeThreshold(),
+            options.isLayoutComponentsSeparately());
+    GxlContentHash contentHash = new GxlContentHash(graphId, settings);
+    elements.accept(contentHash);
+    return contentHash.getHash();
+  }
+
+  /** Returns true and records the hash if the file is unchanged according to the manifest. */
+  private static boolean isUnchanged(String fileName, String hash, GrooveWriterOptions options) {
+    GrooveManifest manifest = options.getManifest();
+    if (manifest == null || !manifest.isUnchanged(fileName, hash)) {
+      return false;
+    }
+    manifest.record(fileName, hash);
+    return true;
+  }
+
+  private static void recordHash(String fileName, String hash, GrooveWriterOptions options) {
+    if (options.getManifest() != null) {
+      options.getManifest().record(fileName, hash);
+    }
+  }
+
+  private static void writeGxl(
+      GrooveOutputSink sink,
+      String fileName,
+      String graphId,
+      Consumer<GxlGraphHandler> elements,
+      GxlLayout layout,
+      GrooveWriterOptions options) {
+    switch (options.getBackend()) {
+      case JAXB -> {
+        // Built before writing, such that sinks writing one file at a time are blocked shortly.
+        GxlTreeBuilder treeBuilder = new GxlTreeBuilder(graphId, layout);
+        elements.accept(treeBuilder);
+        sink.write(
+            fileName,
+            out -> GxlToXMLConverter.toXml(treeBuilder.getGxl(), out, options.getFormat()));
+      }
+      case STAX ->
+          sink.write(
+              fileName,
+              out -> {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                GxlStreamWriter streamWriter =
+                    new GxlStreamWriter(writer, graphId, layout, options.getFormat());
+                streamWriter.startDocument();
+                elements.accept(streamWriter);
+                streamWriter.endDocument();
+              });
+    }
+  }
+
+  private static GxlLayout computeLayout(
+      Consumer<GxlGraphHandler> elements, GrooveWriterOptions options) {
+    GxlLayout layout = new GxlLayout();
+    elements.accept(layout);
+    layout.compute(options);
+    return layout;
+  }
+
+  static void emitRule(GrooveGraphRule grooveGraphRule, GxlGraphHandler handler) {
+    // Add nodes which should be added to gxl
+    grooveGraphRule
+        .getNodesToBeAdded()
+        .forEach(toBeAddedNode -> emitRuleNode(handler, toBeAddedNode, NodeRuleAspect.ADD));
+
+    // Add nodes which should be deleted to gxl
+    grooveGraphRule
+        .getNodesToBeDeleted()
+        .forEach(toBeDeletedNode -> emitRuleNode(handler, toBeDeletedNode, NodeRuleAspect.DEL));
+
+    // Add nodes which should be in context
+    grooveGraphRule
+        .getContextNodes()
+        .forEach(contextNode -> emitRuleNode(handler, contextNode, NodeRuleAspect.CONTEXT));
+
+    // Add NAC nodes
+    grooveGraphRule
+        .getNACNodes()
+        .forEach(contextNode -> emitRuleNode(handler, contextNode, NodeRuleAspect.NOT));
+
+    // Add edges which should be added to gxl
+    grooveGraphRule
+        .getEdgesToBeAdded()
+        .forEach(toBeAddedEdge -> emitRuleEdge(handler, toBeAddedEdge, NodeRuleAspect.ADD));
+
+    // Add edges which should be deleted to gxl
+    grooveGraphRule
+        .getEdgesToBeDeleted()
+        .forEach(toBeDeletedEdge -> emitRuleEdge(handler, toBeDeletedEdge, NodeRuleAspect.DEL));
+
+    // Add context edges to gxl
+    grooveGraphRule
+        .getContextEdges()
+        .forEach(contextEdge -> emitRuleEdge(handler, contextEdge, NodeRuleAspect.CONTEXT));
+
+    // Add nac edges to gxl
+    grooveGraphRule
+        .getNacEdges()
+        .forEach(nacEdge -> emitRuleEdge(handler, nacEdge, NodeRuleAspect.NOT));
+  }
+
+  private static void emitGraph(
+      GrooveGraph graph, GxlGraphHandler handler, LongSupplier dataNodeIds) {
     graph
         .nodes()
         .forEach(
             node -> {
-              Node gxlNode =
-                  GrooveGxlHelper.createNodeWithName(node.getId(), node.getName(), gxlGraph);
+              long nodeId = node.getNumericId();
+              handler.node(nodeId, node.getName());
               // Add flags
-              node.getFlags()
-                  .forEach(flag -> GrooveGxlHelper.addFlagToNode(gxlGraph, gxlNode, flag));
+              node.getFlags().forEach(flag -> handler.edge(nodeId, nodeId, FLAG + flag));
               // Add data nodes/attributes
               node.getAttributes()
                   .forEach(
                       (name, value) ->
-                          addNodeAttribute(gxlGraph, idToNodeLabel, gxlNode, name, value));
-
-              idToNodeLabel.put(node.getId(), node.getName());
-              grooveNodeIdToGxlNode.put(node.getId(), gxlNode);
+                          emitNodeAttribute(handler, nodeId, name, value, dataNodeIds));
             });
     graph
         .edges()
         .forEach(
             edge ->
-                GrooveGxlHelper.createEdgeWithName(
-                    gxlGraph,
-                    grooveNodeIdToGxlNode.get(edge.getSourceNode().getId()),
-                    grooveNodeIdToGxlNode.get(edge.getTargetNode().getId()),
+                handler.edge(
+                    edge.getSourceNode().getNumericId(),
+                    edge.getTargetNode().getNumericId(),
                     edge.getName()));
+  }
 
-    if (layout) {
-      GrooveGxlHelper.layoutGraph(gxlGraph, idToNodeLabel);
+  private static void emitCompactGraph(CompactGrooveGraph graph, GxlGraphHandler handler) {
+    // Data nodes get the ids following the node indices.
+    LongSupplier dataNodeIds = new AtomicLong(graph.getNodeCount())::getAndIncrement;
+    for (int node = 0; node < graph.getNodeCount(); node++) {
+      long nodeId = node;
+      handler.node(nodeId, graph.getNodeLabel(node));
+      graph.getFlags(node).forEach(flag -> handler.edge(nodeId, nodeId, FLAG + flag));
+      graph
+          .getAttributes(node)
+          .forEach(
+              (name, value) -> emitNodeAttribute(handler, nodeId, name, value, dataNodeIds));
+    }
+    for (int source = 0; source < graph.getNodeCount(); source++) {
+      for (int edge = graph.getOutEdgesStart(source); edge < graph.getOutEdgesEnd(source); edge++) {
+        handler.edge(source, graph.getEdgeTarget(edge), graph.getEdgeLabel(edge));
+      }
     }
-    return gxl;
   }
 
-  private static void addNodeAttribute(
-      io.github.timkraeuter.groove.gxl.Graph graph,
-      Map<String, String> idToNodeLabel,
-      Node attributeHolder,
+  private static void emitNodeAttribute(
+      GxlGraphHandler handler,
+      long attributeHolderId,
       String attributeName,
-      GrooveValue attributeValue) {
+      GrooveValue attributeValue,
+      LongSupplier dataNodeIds) {
     String attributeNodeName =
         String.format("%s:%s", attributeValue.getTypeName(), attributeValue.getValue());
-    Node dataNode =
-        GrooveGxlHelper.createNodeWithName(GrooveNode.getNextNodeId(), attributeNodeName, graph);
-    GrooveGxlHelper.createEdgeWithName(graph, attributeHolder, dataNode, attributeName);
-
-    idToNodeLabel.put(dataNode.getId(), attributeNodeName);
-  }
-
-  private static void layoutRuleIfConfigured(
-      boolean layout, GrooveGraphRule grooveGraphRule, Graph graph) {
-    if (layout) {
-      GrooveGxlHelper.layoutGraph(
-          graph,
-          grooveGraphRule.getAllNodes().entrySet().stream()
-              .collect(
-                  Collectors.toMap(
-                      Map.Entry::getKey, idNodePair -> idNodePair.getValue().getName())));
-    }
+    long dataNodeId = dataNodeIds.getAsLong();
+    handler.node(dataNodeId, attributeNodeName);
+    handler.edge(attributeHolderId, dataNodeId, attributeName);
   }
 
-  private static void addEdgeToGxlGraph(
-      Graph graph,
-      GrooveEdge grooveEdge,
-      Map<String, Node> createdGxlNodes,
-      NodeRuleAspect nodeAspect) {
-    Node sourceNode = createdGxlNodes.get(grooveEdge.getSourceNode().getId());
-    Node targetNode = createdGxlNodes.get(grooveEdge.getTargetNode().getId());
-    assert sourceNode != null;
-    assert targetNode != null;
-
-    GrooveGxlHelper.createEdgeWithName(
-        graph, sourceNode, targetNode, getAspectLabel(nodeAspect) + grooveEdge.getName());
+  private static void emitRuleEdge(
+      GxlGraphHandler handler, GrooveEdge grooveEdge, NodeRuleAspect nodeAspect) {
+    handler.edge(
+        grooveEdge.getSourceNode().getNumericId(),
+        grooveEdge.getTargetNode().getNumericId(),
+        getAspectLabel(nodeAspect) + grooveEdge.getName());
   }
 
-  private static void addNodeToGxlGraph(
-      Graph graph,
-      GrooveNode grooveNode,
-      Map<String, Node> nodeRepository,
-      NodeRuleAspect nodeAspect) {
-    Node gxlNode =
-        GrooveGxlHelper.createNodeWithName(grooveNode.getId(), grooveNode.getName(), graph);
+  private static void emitRuleNode(
+      GxlGraphHandler handler, GrooveNode grooveNode, NodeRuleAspect nodeAspect) {
+    long nodeId = grooveNode.getNumericId();
+    handler.node(nodeId, grooveNode.getName());
     // Each flag itself could be deleted, added or just context!
-    grooveNode.getFlags().forEach(flag -> GrooveGxlHelper.addFlagToNode(graph, gxlNode, flag));
-    nodeRepository.put(gxlNode.getId(), gxlNode);
+    grooveNode.getFlags().forEach(flag -> handler.edge(nodeId, nodeId, FLAG + flag));
 
     // Nodes need get a "new:", "del:" or no label depending on their aspect.
-    switch (nodeAspect) {
-      case CONTEXT:
-        // No label
-        break;
-      case ADD:
-        GrooveGxlHelper.createEdgeWithName(graph, gxlNode, gxlNode, ASPECT_LABEL_NEW);
-        break;
-      case DEL:
-        GrooveGxlHelper.createEdgeWithName(graph, gxlNode, gxlNode, ASPECT_LABEL_DEL);
-        break;
-      case NOT:
-        GrooveGxlHelper.createEdgeWithName(graph, gxlNode, gxlNode, ASPECT_LABEL_NOT);
-        break;
+    if (nodeAspect != NodeRuleAspect.CONTEXT) {
+      handler.edge(nodeId, nodeId, getAspectLabel(nodeAspect));
     }
   }
 
@@ -236,8 +528,6 @@ public class GrooveRuleAndGraphWriter {
     };
   }
 
-  private static void writeRuleToFile(Path dir, GrooveGraphRule grooveGraphRule, Gxl gxl) {
-    Path file = Paths.get(dir.toString(), grooveGraphRule.getRuleName() + ".gpr");
-    GxlToXMLConverter.toXml(gxl, file);
-  }
+  private record PendingLayout(
+      GrooveGraphRule rule, String hash, CompletableFuture<GxlLayout> layout) {}
 }
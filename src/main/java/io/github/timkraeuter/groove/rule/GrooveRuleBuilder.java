@@ -3,95 +3,269 @@ package io.github.timkraeuter.groove.rule;
 import io.github.timkraeuter.api.GraphNode;
 import io.github.timkraeuter.api.GraphTransformationRuleBuilder;
 import io.github.timkraeuter.groove.graph.GrooveEdge;
+import io.github.timkraeuter.groove.graph.GrooveIdContext;
 import io.github.timkraeuter.groove.graph.GrooveNode;
+import java.nio.file.Path;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /** Builder for Groove rules. */
 public class GrooveRuleBuilder implements GraphTransformationRuleBuilder {
   private final Map<String, GrooveGraphRule> ruleNameToRule;
+  private final Set<String> writtenRuleNames;
+  private final GrooveIdContext idContext;
   private GrooveGraphRule currentRule;
+  private GrooveRuleWriteThrough writeThrough;
 
-  /** Create a new rule builder. */
+  /** Create a new rule builder using the global id context. */
   public GrooveRuleBuilder() {
+    this(GrooveIdContext.global());
+  }
+
+  /**
+   * Create a new rule builder.
+   *
+   * @param idContext context allocating the ids of created nodes and edges.
+   */
+  public GrooveRuleBuilder(GrooveIdContext idContext) {
     ruleNameToRule = new LinkedHashMap<>();
+    writtenRuleNames = new HashSet<>();
+    this.idContext = idContext;
     currentRule = null;
+    writeThrough = null;
   }
 
   /**
-   * Created synced rules.
+   * Created synced rules using the global id context.
    *
    * @param nameToToBeSyncedRules name and rules to be synched.
    * @return Synced GT rules.
    */
   public static Stream<GrooveGraphRule> createSyncedRules(
       Map<String, Set<GrooveGraphRule>> nameToToBeSyncedRules) {
-    GrooveRuleBuilder ruleGenerator = new GrooveRuleBuilder();
+    return createSyncedRules(nameToToBeSyncedRules, GrooveIdContext.global());
+  }
+
+  /**
+   * Created synced rules.
+   *
+   * @param nameToToBeSyncedRules name and rules to be synched.
+   * @param idContext context allocating the ids of the synced rules.
+   * @return Synced GT rules.
+   */
+  public static Stream<GrooveGraphRule> createSyncedRules(
+      Map<String, Set<GrooveGraphRule>> nameToToBeSyncedRules, GrooveIdContext idContext) {
+    GrooveRuleBuilder ruleGenerator = new GrooveRuleBuilder(idContext);
     nameToToBeSyncedRules.forEach(
-        (synchedRuleName, synchedRules) -> {
-          ruleGenerator.startRule(synchedRuleName);
-
-          synchedRules.stream()
-              .sorted(Comparator.comparing(GrooveGraphRule::getRuleName))
-              .forEach(
-                  grooveGraphRule -> {
-                    Map<String, GrooveNode> oldIdToNewNode = new HashMap<>();
-                    // Nodes
-                    grooveGraphRule
-                        .getNodesToBeAdded()
-                        .forEach(
-                            addNode -> {
-                              GrooveNode createdAddNode = ruleGenerator.addNode(addNode.getName());
-                              oldIdToNewNode.put(addNode.getId(), createdAddNode);
-                            });
-                    grooveGraphRule
-                        .getNodesToBeDeleted()
-                        .forEach(
-                            delNode -> {
-                              GrooveNode createdDelNode =
-                                  ruleGenerator.deleteNode(delNode.getName());
-                              oldIdToNewNode.put(delNode.getId(), createdDelNode);
-                            });
-                    grooveGraphRule
-                        .getContextNodes()
-                        .forEach(
-                            contextNode -> {
-                              GrooveNode createdContextNode =
-                                  ruleGenerator.contextNode(contextNode.getName());
-                              oldIdToNewNode.put(contextNode.getId(), createdContextNode);
-                            });
-
-                    // Edges
-                    grooveGraphRule
-                        .getEdgesToBeAdded()
-                        .forEach(
-                            addEdge ->
-                                ruleGenerator.addEdge(
-                                    addEdge.getName(),
-                                    oldIdToNewNode.get(addEdge.getSourceNode().getId()),
-                                    oldIdToNewNode.get(addEdge.getTargetNode().getId())));
-                    grooveGraphRule
-                        .getEdgesToBeDeleted()
-                        .forEach(
-                            delEdge ->
-                                ruleGenerator.deleteEdge(
-                                    delEdge.getName(),
-                                    oldIdToNewNode.get(delEdge.getSourceNode().getId()),
-                                    oldIdToNewNode.get(delEdge.getTargetNode().getId())));
-                  });
-
-          ruleGenerator.buildRule();
-        });
+        (synchedRuleName, synchedRules) ->
+            buildSyncedRule(ruleGenerator, synchedRuleName, synchedRules));
     return ruleGenerator.getRules();
   }
 
+  /**
+   * Create synced rules lazily using the global id context. See {@link
+   * #createSyncedRulesLazily(Map, GrooveIdContext)}.
+   *
+   * @param nameToToBeSyncedRules name and rules to be synched.
+   * @return Synced GT rules, which are created once consumed.
+   */
+  public static Stream<GrooveGraphRule> createSyncedRulesLazily(
+      Map<String, Set<GrooveGraphRule>> nameToToBeSyncedRules) {
+    return createSyncedRulesLazily(nameToToBeSyncedRules, GrooveIdContext.global());
+  }
+
+  /**
+   * Create synced rules lazily. Each synced rule is only created when the stream consumes it and is
+   * not kept afterward, for example, by {@link GrooveRuleAndGraphWriter#writeRules(Path, Stream,
+   * GrooveWriterOptions)}. Thus, not all synced rules need to be in memory at once. The ids are
+   * allocated in consumption order, i.e., a sequentially consumed stream results in the same rules
+   * and ids as {@link #createSyncedRules(Map, GrooveIdContext)}.
+   *
+   * @param nameToToBeSyncedRules name and rules to be synched.
+   * @param idContext context allocating the ids of the synced rules.
+   * @return Synced GT rules, which are created once consumed.
+   */
+  public static Stream<GrooveGraphRule> createSyncedRulesLazily(
+      Map<String, Set<GrooveGraphRule>> nameToToBeSyncedRules, GrooveIdContext idContext) {
+    return nameToToBeSyncedRules.entrySet().stream()
+        .map(
+            synchedRules ->
+                buildSyncedRule(
+                    new GrooveRuleBuilder(idContext),
+                    synchedRules.getKey(),
+                    synchedRules.getValue()));
+  }
+
+  /**
+   * Created synced rules concurrently using the global id context. See {@link
+   * #createSyncedRulesInParallel(Map, GrooveIdContext)}.
+   *
+   * @param nameToToBeSyncedRules name and rules to be synched.
+   * @return Synced GT rules.
+   */
+  public static Stream<GrooveGraphRule> createSyncedRulesInParallel(
+      Map<String, Set<GrooveGraphRule>> nameToToBeSyncedRules) {
+    return createSyncedRulesInParallel(nameToToBeSyncedRules, GrooveIdContext.global());
+  }
+
+  /**
+   * Created synced rules concurrently. Each synced rule is created by its own builder in the common
+   * fork join pool. The ids of all synced rules are reserved in the given context up front, such
+   * that the synced rules, including their order and ids, are the same as the ones created by
+   * {@link #createSyncedRules(Map, GrooveIdContext)}.
+   *
+   * @param nameToToBeSyncedRules name and rules to be synched.
+   * @param idContext context allocating the ids of the synced rules.
+   * @return Synced GT rules.
+   */
+  public static Stream<GrooveGraphRule> createSyncedRulesInParallel(
+      Map<String, Set<GrooveGraphRule>> nameToToBeSyncedRules, GrooveIdContext idContext) {
+    List<Map.Entry<String, Set<GrooveGraphRule>>> toBeSyncedRules =
+        List.copyOf(nameToToBeSyncedRules.entrySet());
+    long[] nodeIdOffsets = new long[toBeSyncedRules.size() + 1];
+    long[] edgeIdOffsets = new long[toBeSyncedRules.size() + 1];
+    for (int i = 0; i < toBeSyncedRules.size(); i++) {
+      Set<GrooveGraphRule> synchedRules = toBeSyncedRules.get(i).getValue();
+      nodeIdOffsets[i + 1] = nodeIdOffsets[i] + countSyncedNodes(synchedRules);
+      edgeIdOffsets[i + 1] = edgeIdOffsets[i] + countSyncedEdges(synchedRules);
+    }
+    long firstNodeId = idContext.reserveNodeIds(nodeIdOffsets[toBeSyncedRules.size()]);
+    long firstEdgeId = idContext.reserveEdgeIds(edgeIdOffsets[toBeSyncedRules.size()]);
+
+    // The parallel stream keeps the encounter order, i.e., the order of the map.
+    List<GrooveGraphRule> syncedRules =
+        IntStream.range(0, toBeSyncedRules.size())
+            .parallel()
+            .mapToObj(
+                i ->
+                    buildSyncedRule(
+                        new GrooveRuleBuilder(
+                            new GrooveIdContext(
+                                firstNodeId + nodeIdOffsets[i], firstEdgeId + edgeIdOffsets[i])),
+                        toBeSyncedRules.get(i).getKey(),
+                        toBeSyncedRules.get(i).getValue()))
+            .toList();
+    return syncedRules.stream();
+  }
+
+  private static GrooveGraphRule buildSyncedRule(
+      GrooveRuleBuilder ruleGenerator, String synchedRuleName, Set<GrooveGraphRule> synchedRules) {
+    ruleGenerator.startRule(synchedRuleName);
+
+    synchedRules.stream()
+        .sorted(Comparator.comparing(GrooveGraphRule::getRuleName))
+        .forEach(
+            grooveGraphRule -> {
+              Map<Long, GrooveNode> oldIdToNewNode = new HashMap<>();
+              // Nodes
+              grooveGraphRule
+                  .getNodesToBeAdded()
+                  .forEach(
+                      addNode -> {
+                        GrooveNode createdAddNode = ruleGenerator.addNode(addNode.getName());
+                        oldIdToNewNode.put(addNode.getNumericId(), createdAddNode);
+                      });
+              grooveGraphRule
+                  .getNodesToBeDeleted()
+                  .forEach(
+                      delNode -> {
+                        GrooveNode createdDelNode = ruleGenerator.deleteNode(delNode.getName());
+                        oldIdToNewNode.put(delNode.getNumericId(), createdDelNode);
+                      });
+              grooveGraphRule
+                  .getContextNodes()
+                  .forEach(
+                      contextNode -> {
+                        GrooveNode createdContextNode =
+                            ruleGenerator.contextNode(contextNode.getName());
+                        oldIdToNewNode.put(contextNode.getNumericId(), createdContextNode);
+                      });
+
+              // Edges
+              grooveGraphRule
+                  .getEdgesToBeAdded()
+                  .forEach(
+                      addEdge ->
+                          ruleGenerator.addEdge(
+                              addEdge.getName(),
+                              oldIdToNewNode.get(addEdge.getSourceNode().getNumericId()),
+                              oldIdToNewNode.get(addEdge.getTargetNode().getNumericId())));
+              grooveGraphRule
+                  .getEdgesToBeDeleted()
+                  .forEach(
+                      delEdge ->
+                          ruleGenerator.deleteEdge(
+                              delEdge.getName(),
+                              oldIdToNewNode.get(delEdge.getSourceNode().getNumericId()),
+                              oldIdToNewNode.get(delEdge.getTargetNode().getNumericId())));
+            });
+
+    return ruleGenerator.buildRule();
+  }
+
+  /** Number of node ids needed by {@link #buildSyncedRule}. */
+  private static long countSyncedNodes(Set<GrooveGraphRule> synchedRules) {
+    return synchedRules.stream()
+        .mapToLong(
+            rule ->
+                rule.getNodesToBeAdded().size()
+                    + rule.getNodesToBeDeleted().size()
+                    + rule.getContextNodes().size())
+        .sum();
+  }
+
+  /** Number of edge ids needed by {@link #buildSyncedRule}. */
+  private static long countSyncedEdges(Set<GrooveGraphRule> synchedRules) {
+    return synchedRules.stream()
+        .mapToLong(rule -> rule.getEdgesToBeAdded().size() + rule.getEdgesToBeDeleted().size())
+        .sum();
+  }
+
+  /**
+   * Write each rule to the sink as soon as it is built instead of keeping it in the builder. Only
+   * the names of written rules are kept to detect duplicate names, such that arbitrarily many rules
+   * can be built with bounded memory. This does not hold if the options have a rule deduplicator,
+   * which keeps the structure of each distinct rule. Rules are written asynchronously by daemon
+   * threads if the parallelism of the options is greater than 1. Call {@link #awaitWrittenRules()}
+   * once all rules are built. Rules built before are written first.
+   *
+   * @param sink sink where to write the built rules.
+   * @param options writer options.
+   * @return builder.
+   */
+  public GrooveRuleBuilder writeThrough(GrooveOutputSink sink, GrooveWriterOptions options) {
+    awaitWrittenRules();
+    this.writeThrough = new GrooveRuleWriteThrough(sink, options);
+    this.ruleNameToRule.values().forEach(this::writeRuleThrough);
+    this.ruleNameToRule.clear();
+    return this;
+  }
+
+  /**
+   * Wait until all rules built since {@link #writeThrough(GrooveOutputSink, GrooveWriterOptions)}
+   * are written. Afterward, built rules are kept in the builder again.
+   *
+   * @throws io.github.timkraeuter.groove.ShouldNotHappenRuntimeException if writing a rule failed.
+   */
+  public void awaitWrittenRules() {
+    if (this.writeThrough == null) {
+      return;
+    }
+    GrooveRuleWriteThrough finishedWriteThrough = this.writeThrough;
+    this.writeThrough = null;
+    finishedWriteThrough.awaitCompletion();
+  }
+
   @Override
   public GrooveRuleBuilder startRule(String ruleName) {
-    if (ruleNameToRule.get(ruleName) != null) {
+    if (ruleNameToRule.get(ruleName) != null || writtenRuleNames.contains(ruleName)) {
       throw new IllegalArgumentException(
           String.format("A rule with the name \"%s\" already exists!", ruleName));
     }
@@ -102,7 +276,7 @@ public class GrooveRuleBuilder implements GraphTransformationRuleBuilder {
   @Override
   public GrooveNode contextNode(String nodeName) {
     assert this.currentRule != null;
-    GrooveNode contextNode = new GrooveNode(nodeName);
+    GrooveNode contextNode = new GrooveNode(nodeName, this.idContext);
     this.currentRule.addContextNode(contextNode);
     return contextNode;
   }
@@ -111,7 +285,7 @@ public class GrooveRuleBuilder implements GraphTransformationRuleBuilder {
   public GrooveNode addNode(String nodeName) {
     assert this.currentRule != null;
 
-    GrooveNode newNode = new GrooveNode(nodeName);
+    GrooveNode newNode = new GrooveNode(nodeName, this.idContext);
     this.currentRule.addNewNode(newNode);
     return newNode;
   }
@@ -120,13 +294,12 @@ public class GrooveRuleBuilder implements GraphTransformationRuleBuilder {
   public GrooveRuleBuilder addEdge(String edgeName, GraphNode source, GraphNode target) {
 
     assert this.currentRule != null;
-    Map<String, GrooveNode> contextAndAddedNodes = this.currentRule.getContextAndAddedNodes();
-    GrooveNode sourceNode = contextAndAddedNodes.get(source.getId());
-    GrooveNode targetNode = contextAndAddedNodes.get(target.getId());
+    GrooveNode sourceNode = this.getContextOrAddedNode(source);
+    GrooveNode targetNode = this.getContextOrAddedNode(target);
 
     this.checkNodeContainment(source, target, sourceNode, targetNode);
 
-    this.currentRule.addNewEdge(new GrooveEdge(edgeName, sourceNode, targetNode));
+    this.currentRule.addNewEdge(new GrooveEdge(edgeName, sourceNode, targetNode, this.idContext));
     return this;
   }
 
@@ -134,7 +307,7 @@ public class GrooveRuleBuilder implements GraphTransformationRuleBuilder {
   public GrooveNode deleteNode(String nodeName) {
     assert this.currentRule != null;
 
-    GrooveNode deleteNode = new GrooveNode(nodeName);
+    GrooveNode deleteNode = new GrooveNode(nodeName, this.idContext);
     this.currentRule.addDelNode(deleteNode);
     return deleteNode;
   }
@@ -143,7 +316,7 @@ public class GrooveRuleBuilder implements GraphTransformationRuleBuilder {
   public GrooveNode nacNode(String nodeName) {
     assert this.currentRule != null;
 
-    GrooveNode notNode = new GrooveNode(nodeName);
+    GrooveNode notNode = new GrooveNode(nodeName, this.idContext);
     this.currentRule.addNacNode(notNode);
     return notNode;
   }
@@ -151,45 +324,60 @@ public class GrooveRuleBuilder implements GraphTransformationRuleBuilder {
   @Override
   public GrooveRuleBuilder deleteEdge(String edgeName, GraphNode source, GraphNode target) {
     assert this.currentRule != null;
-    Map<String, GrooveNode> contextAndAddedNodes = this.currentRule.getAllNodes();
-
-    GrooveNode sourceNode = contextAndAddedNodes.get(source.getId());
-    GrooveNode targetNode = contextAndAddedNodes.get(target.getId());
+    GrooveNode sourceNode = this.getNode(source);
+    GrooveNode targetNode = this.getNode(target);
 
     this.checkNodeContainment(source, target, sourceNode, targetNode);
 
-    this.currentRule.addDelEdge(new GrooveEdge(edgeName, sourceNode, targetNode));
+    this.currentRule.addDelEdge(new GrooveEdge(edgeName, sourceNode, targetNode, this.idContext));
     return this;
   }
 
   @Override
   public GrooveRuleBuilder contextEdge(String name, GraphNode source, GraphNode target) {
     assert this.currentRule != null;
-    Map<String, GrooveNode> nodes = this.currentRule.getAllNodes();
-
-    GrooveNode sourceNode = nodes.get(source.getId());
-    GrooveNode targetNode = nodes.get(target.getId());
+    GrooveNode sourceNode = this.getNode(source);
+    GrooveNode targetNode = this.getNode(target);
 
     this.checkNodeContainment(source, target, sourceNode, targetNode);
 
-    this.currentRule.addContextEdge(new GrooveEdge(name, sourceNode, targetNode));
+    this.currentRule.addContextEdge(new GrooveEdge(name, sourceNode, targetNode, this.idContext));
     return this;
   }
 
   @Override
   public GrooveRuleBuilder nacEdge(String edge, GraphNode source, GraphNode target) {
     assert this.currentRule != null;
-    Map<String, GrooveNode> nodes = this.currentRule.getAllNodes();
-
-    GrooveNode sourceNode = nodes.get(source.getId());
-    GrooveNode targetNode = nodes.get(target.getId());
+    GrooveNode sourceNode = this.getNode(source);
+    GrooveNode targetNode = this.getNode(target);
 
     this.checkNodeContainment(source, target, sourceNode, targetNode);
 
-    this.currentRule.addNacEdge(new GrooveEdge(edge, sourceNode, targetNode));
+    this.currentRule.addNacEdge(new GrooveEdge(edge, sourceNode, targetNode, this.idContext));
     return this;
   }
 
+  private GrooveNode getNode(GraphNode node) {
+    if (node instanceof GrooveNode grooveNode
+        && this.currentRule.getNode(grooveNode.getNumericId()) == grooveNode) {
+      return grooveNode;
+    }
+    // Only groove nodes can be contained in the rule. Ids of nodes from other contexts may clash.
+    return null;
+  }
+
+  private GrooveNode getContextOrAddedNode(GraphNode node) {
+    GrooveNode grooveNode = this.getNode(node);
+    if (grooveNode == null) {
+      return null;
+    }
+    NodeRuleAspect aspect = this.currentRule.getNodeAspect(grooveNode.getNumericId());
+    if (aspect == NodeRuleAspect.CONTEXT || aspect == NodeRuleAspect.ADD) {
+      return grooveNode;
+    }
+    return null;
+  }
+
   private void checkNodeContainment(
       GraphNode source, GraphNode target, GrooveNode sourceNode, GrooveNode targetNode) {
     if (sourceNode == null) {
@@ -205,17 +393,35 @@ public class GrooveRuleBuilder implements GraphTransformationRuleBuilder {
   @Override
   public GrooveGraphRule buildRule() {
     GrooveGraphRule newRule = this.currentRule;
-    this.ruleNameToRule.put(newRule.getRuleName(), newRule);
     this.currentRule = null;
+    if (this.writeThrough != null) {
+      writeRuleThrough(newRule);
+      return newRule;
+    }
+    this.ruleNameToRule.put(newRule.getRuleName(), newRule);
     return newRule;
   }
 
+  private void writeRuleThrough(GrooveGraphRule rule) {
+    this.writtenRuleNames.add(rule.getRuleName());
+    this.writeThrough.write(rule);
+  }
+
   /**
-   * Get all rules.
+   * Get all rules, except the rules written when they were built.
    *
    * @return all build rules.
    */
   public Stream<GrooveGraphRule> getRules() {
     return this.ruleNameToRule.values().stream();
   }
+
+  /**
+   * Returns the id context of the builder.
+   *
+   * @return id context.
+   */
+  public GrooveIdContext getIdContext() {
+    return this.idContext;
+  }
 }
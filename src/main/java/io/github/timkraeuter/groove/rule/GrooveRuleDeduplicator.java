@@ -0,0 +1,261 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Detects rules which are identical up to their names and node ids, i.e., rules with the same node
+ * names, flags, aspects, and edges. Groove matches each of these rules in every state, although
+ * they have the same effect. Rules are first grouped by an invariant of their structure, which is
+ * computed using color refinement, and then compared exactly. The first rule of each group of
+ * identical rules is kept. Each write using the deduplicator starts over, i.e., only duplicates
+ * within the same write are skipped and reported. Otherwise, rules written again would be
+ * duplicates of themselves. The deduplicator can be used by concurrent threads.
+ */
+public class GrooveRuleDeduplicator {
+  private final Map<Long, List<RuleShape>> invariantToKeptRules;
+  private final Map<String, String> duplicateToKeptRule;
+
+  /** Create a deduplicator without any known rules. */
+  public GrooveRuleDeduplicator() {
+    this.invariantToKeptRules = new HashMap<>();
+    this.duplicateToKeptRule = new LinkedHashMap<>();
+  }
+
+  /**
+   * Add a rule. The rule is a duplicate if an identical rule with another name was added before.
+   *
+   * @param rule rule to add.
+   * @return true if the rule is not a duplicate and should be kept.
+   */
+  public boolean add(GrooveGraphRule rule) {
+    RuleShape shape = new RuleShape(rule);
+    synchronized (this) {
+      List<RuleShape> keptRules =
+          invariantToKeptRules.computeIfAbsent(
+              shape.getInvariant(), invariant -> new ArrayList<>());
+      for (RuleShape keptRule : keptRules) {
+        if (shape.isIsomorphicTo(keptRule)) {
+          if (keptRule.ruleName.equals(shape.ruleName)) {
+            // The same rule added again.
+            return true;
+          }
+          duplicateToKeptRule.put(shape.ruleName, keptRule.ruleName);
+          return false;
+        }
+      }
+      keptRules.add(shape);
+      return true;
+    }
+  }
+
+  /** Forget all added rules and found duplicates, since a new write starts. */
+  synchronized void startWrite() {
+    invariantToKeptRules.clear();
+    duplicateToKeptRule.clear();
+  }
+
+  /**
+   * Removes the duplicates from a stream of rules.
+   *
+   * @param rules stream of rules.
+   * @return stream of the rules which are not duplicates.
+   */
+  public Stream<GrooveGraphRule> deduplicate(Stream<GrooveGraphRule> rules) {
+    return rules.filter(this::add);
+  }
+
+  /**
+   * Returns the names of the duplicate rules found in the last write with the names of the rules
+   * they are identical to.
+   *
+   * @return map from the name of each duplicate rule to the name of the kept rule.
+   */
+  public synchronized Map<String, String> getDuplicates() {
+    return Collections.unmodifiableMap(new LinkedHashMap<>(duplicateToKeptRule));
+  }
+
+  /**
+   * The elements of a rule as written to the gxl file, i.e., including flags and aspects, with the
+   * nodes numbered from 0.
+   */
+  private static class RuleShape implements GxlGraphHandler {
+    private static final long OUTGOING = 1;
+    private static final long INCOMING = 2;
+
+    private final String ruleName;
+    private final Map<Long, Integer> idToIndex;
+    private final List<String> nodeLabels;
+    private final List<RuleShapeEdge> edges;
+    // Labels of the edges between two nodes, sorted, by the key of the node pair.
+    private final Map<Long, List<String>> pairToLabels;
+    private long[] colors;
+
+    RuleShape(GrooveGraphRule rule) {
+      this.ruleName = rule.getRuleName();
+      this.idToIndex = new HashMap<>();
+      this.nodeLabels = new ArrayList<>();
+      this.edges = new ArrayList<>();
+      this.pairToLabels = new HashMap<>();
+      GrooveRuleAndGraphWriter.emitRule(rule, this);
+      pairToLabels.values().forEach(Collections::sort);
+      refineColors();
+    }
+
+    @Override
+    public void node(long id, String label) {
+      idToIndex.put(id, nodeLabels.size());
+      nodeLabels.add(label);
+    }
+
+    @Override
+    public void edge(long sourceId, long targetId, String label) {
+      RuleShapeEdge edge =
+          new RuleShapeEdge(idToIndex.get(sourceId), idToIndex.get(targetId), label);
+      edges.add(edge);
+      pairToLabels
+          .computeIfAbsent(getPairKey(edge.source, edge.target), key -> new ArrayList<>())
+          .add(label);
+    }
+
+    /**
+     * Colors the nodes such that nodes with different colors cannot be mapped to each other. A
+     * node's color is refined by the colors of its neighbours until the number of colors stays the
+     * same.
+     */
+    private void refineColors() {
+      colors = nodeLabels.stream().mapToLong(RuleShape::hash).toArray();
+      long colorCount = Arrays.stream(colors).distinct().count();
+      for (int round = 0; round < nodeLabels.size(); round++) {
+        List<List<Long>> neighbourColors = new ArrayList<>();
+        nodeLabels.forEach(label -> neighbourColors.add(new ArrayList<>()));
+        for (RuleShapeEdge edge : edges) {
+          long labelHash = hash(edge.label);
+          neighbourColors
+              .get(edge.source)
+              .add(combine(combine(OUTGOING, labelHash), colors[edge.target]));
+          neighbourColors
+              .get(edge.target)
+              .add(combine(combine(INCOMING, labelHash), colors[edge.source]));
+        }
+        long[] refinedColors = new long[colors.length];
+        for (int node = 0; node < colors.length; node++) {
+          refinedColors[node] = combineSorted(colors[node], neighbourColors.get(node));
+        }
+        colors = refinedColors;
+        long refinedColorCount = Arrays.stream(colors).distinct().count();
+        if (refinedColorCount == colorCount) {
+          return;
+        }
+        colorCount = refinedColorCount;
+      }
+    }
+
+    long getInvariant() {
+      return combineSorted(edges.size(), Arrays.stream(colors).boxed().toList());
+    }
+
+    boolean isIsomorphicTo(RuleShape other) {
+      if (nodeLabels.size() != other.nodeLabels.size() || edges.size() != other.edges.size()) {
+        return false;
+      }
+      if (!Arrays.equals(
+          Arrays.stream(colors).sorted().toArray(),
+          Arrays.stream(other.colors).sorted().toArray())) {
+        return false;
+      }
+      // Map the nodes with rare colors first, since they have the fewest candidates.
+      Map<Long, Long> colorToCount = new HashMap<>();
+      Arrays.stream(colors).forEach(color -> colorToCount.merge(color, 1L, Long::sum));
+      int[] order =
+          IntStream.range(0, colors.length)
+              .boxed()
+              .sorted(Comparator.comparing(node -> colorToCount.get(colors[node])))
+              .mapToInt(Integer::intValue)
+              .toArray();
+      int[] mapping = new int[colors.length];
+      Arrays.fill(mapping, -1);
+      return extendMapping(other, order, 0, mapping, new boolean[colors.length]);
+    }
+
+    /** Backtracking search for a mapping which preserves node labels and edges. */
+    private boolean extendMapping(
+        RuleShape other, int[] order, int mapped, int[] mapping, boolean[] used) {
+      if (mapped == order.length) {
+        return true;
+      }
+      int node = order[mapped];
+      for (int candidate = 0; candidate < other.colors.length; candidate++) {
+        if (used[candidate]
+            || colors[node] != other.colors[candidate]
+            || !nodeLabels.get(node).equals(other.nodeLabels.get(candidate))) {
+          continue;
+        }
+        mapping[node] = candidate;
+        if (isConsistent(other, order, mapped, mapping)) {
+          used[candidate] = true;
+          if (extendMapping(other, order, mapped + 1, mapping, used)) {
+            return true;
+          }
+          used[candidate] = false;
+        }
+        mapping[node] = -1;
+      }
+      return false;
+    }
+
+    /**
+     * Checks that the edges between the newly mapped node and all nodes mapped before (including
+     * itself) are the same in both rules. Once all nodes are mapped, all edges have been compared.
+     */
+    private boolean isConsistent(RuleShape other, int[] order, int mapped, int[] mapping) {
+      int node = order[mapped];
+      for (int i = 0; i <= mapped; i++) {
+        int mappedNode = order[i];
+        int otherNode = mapping[node];
+        int otherMappedNode = mapping[mappedNode];
+        if (!getLabels(node, mappedNode).equals(other.getLabels(otherNode, otherMappedNode))
+            || !getLabels(mappedNode, node).equals(other.getLabels(otherMappedNode, otherNode))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private List<String> getLabels(int source, int target) {
+      return pairToLabels.getOrDefault(getPairKey(source, target), List.of());
+    }
+
+    private static long getPairKey(int source, int target) {
+      return ((long) source << 32) | target;
+    }
+
+    private static long hash(String value) {
+      return combine(value.length(), value.hashCode());
+    }
+
+    private static long combineSorted(long hash, List<Long> values) {
+      long[] sortedValues = values.stream().mapToLong(Long::longValue).sorted().toArray();
+      long combined = hash;
+      for (long value : sortedValues) {
+        combined = combine(combined, value);
+      }
+      return combined;
+    }
+
+    private static long combine(long hash, long value) {
+      long combined = (hash ^ value) * 0x9E3779B97F4A7C15L;
+      return combined ^ (combined >>> 29) ^ Long.rotateLeft(hash, 17);
+    }
+  }
+
+  private record RuleShapeEdge(int source, int target, String label) {}
+}
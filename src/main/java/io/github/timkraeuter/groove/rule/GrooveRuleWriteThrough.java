@@ -0,0 +1,88 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes the rules of a {@link GrooveRuleBuilder} as soon as they are built. Rules are written on
+ * the building thread if the parallelism of the options is 1, otherwise by the executor of the
+ * options or a temporary thread pool. Then, only a few rules wait to be written, i.e., building
+ * blocks if the writing falls behind. The threads of the temporary pool are daemon threads, such
+ * that they do not keep the JVM alive if the writing is never awaited, for example, since building
+ * the rules failed.
+ */
+class GrooveRuleWriteThrough {
+  private final GrooveOutputSink sink;
+  private final GrooveWriterOptions options;
+  private final GrooveWriterOptions taskOptions;
+  // Both are null if the rules are written on the building thread.
+  private final ExecutorService temporaryExecutor;
+  private final ParallelWriteTasks tasks;
+
+  GrooveRuleWriteThrough(GrooveOutputSink sink, GrooveWriterOptions options) {
+    this.sink = sink;
+    this.options = options;
+    this.taskOptions = GrooveRuleAndGraphWriter.getWriterThreadOptions(options);
+    if (options.getRuleDeduplicator() != null) {
+      options.getRuleDeduplicator().startWrite();
+    }
+    if (options.getParallelism() == 1) {
+      this.temporaryExecutor = null;
+      this.tasks = null;
+      return;
+    }
+    Executor executor = options.getExecutor();
+    if (executor == null) {
+      this.temporaryExecutor =
+          Executors.newFixedThreadPool(
+              options.getParallelism(),
+              runnable -> {
+                Thread thread = new Thread(runnable, "groove-rule-write-through");
+                thread.setDaemon(true);
+                return thread;
+              });
+      executor = this.temporaryExecutor;
+    } else {
+      this.temporaryExecutor = null;
+    }
+    this.tasks = new ParallelWriteTasks(executor, options.getParallelism() * 2);
+  }
+
+  /**
+   * Write a rule or submit it to be written. Rules identical to a written rule are skipped if the
+   * options have a deduplicator.
+   *
+   * @param rule built rule.
+   */
+  void write(GrooveGraphRule rule) {
+    GrooveRuleDeduplicator deduplicator = options.getRuleDeduplicator();
+    if (deduplicator != null && !deduplicator.add(rule)) {
+      return;
+    }
+    if (tasks == null) {
+      GrooveRuleAndGraphWriter.writeRule(sink, rule, options);
+      return;
+    }
+    tasks.submit(
+        rule.getRuleName(), () -> GrooveRuleAndGraphWriter.writeRule(sink, rule, taskOptions));
+  }
+
+  /**
+   * Wait until all submitted rules are written and shut down the temporary thread pool.
+   *
+   * @throws io.github.timkraeuter.groove.ShouldNotHappenRuntimeException if writing a rule failed.
+   */
+  void awaitCompletion() {
+    if (tasks == null) {
+      return;
+    }
+    try {
+      tasks.awaitCompletion();
+    } finally {
+      if (temporaryExecutor != null) {
+        temporaryExecutor.shutdown();
+      }
+    }
+  }
+}
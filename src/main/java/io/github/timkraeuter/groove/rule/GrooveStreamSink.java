@@ -0,0 +1,49 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes each file to its own output stream, for example, a request to a storage service per file.
+ * The streams are opened by the given opener and closed once the file is written.
+ */
+public class GrooveStreamSink implements GrooveOutputSink {
+  private final StreamOpener streamOpener;
+
+  /**
+   * Create a stream sink.
+   *
+   * @param streamOpener opens the stream of a file. Called concurrently if files are written
+   *     concurrently.
+   */
+  public GrooveStreamSink(StreamOpener streamOpener) {
+    this.streamOpener = streamOpener;
+  }
+
+  @Override
+  public void write(String name, ContentWriter content) {
+    try (OutputStream out =
+        new BufferedOutputStream(streamOpener.open(name), AtomicFileWriter.BUFFER_SIZE)) {
+      content.write(out);
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(
+          String.format("The file %s could not be written.", name), e);
+    }
+  }
+
+  /** Opens the output stream of a file. */
+  @FunctionalInterface
+  public interface StreamOpener {
+
+    /**
+     * Open the output stream of a file.
+     *
+     * @param name name of the file.
+     * @return stream to write the file to, which is closed afterward.
+     * @throws IOException if the stream cannot be opened.
+     */
+    OutputStream open(String name) throws IOException;
+  }
+}
@@ -0,0 +1,375 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/** Options for writing rules and graphs using the {@link GrooveRuleAndGraphWriter}. */
+public class GrooveWriterOptions {
+  /** ELK layered layout becomes very slow for graphs with more nodes. */
+  public static final int DEFAULT_LAYOUT_SIZE_THRESHOLD = 5000;
+
+  private boolean layout;
+  private GxlWriterBackend backend;
+  private GxlOutputFormat format;
+  private int parallelism;
+  private int layoutParallelism;
+  private GrooveLayoutCache layoutCache;
+  private int layoutSizeThreshold;
+  private Duration layoutTimeBudget;
+  private boolean layoutComponentsSeparately;
+  private GrooveManifest manifest;
+  private boolean reproducible;
+  private Executor executor;
+  private GrooveRuleDeduplicator ruleDeduplicator;
+
+  /**
+   * Create options with the defaults, i.e., no layout, the JAXB backend, pretty output, and rules
+   * are written one after another.
+   */
+  public GrooveWriterOptions() {
+    this.layout = false;
+    this.backend = GxlWriterBackend.JAXB;
+    this.format = GxlOutputFormat.PRETTY;
+    this.parallelism = 1;
+    this.layoutParallelism = 1;
+    this.layoutCache = null;
+    this.layoutSizeThreshold = DEFAULT_LAYOUT_SIZE_THRESHOLD;
+    this.layoutTimeBudget = null;
+    this.layoutComponentsSeparately = false;
+    this.manifest = null;
+    this.reproducible = false;
+    this.executor = null;
+    this.ruleDeduplicator = null;
+  }
+
+  /**
+   * Create a copy of the options.
+   *
+   * @return copied options.
+   */
+  public GrooveWriterOptions copy() {
+    GrooveWriterOptions copy = new GrooveWriterOptions();
+    copy.layout = this.layout;
+    copy.backend = this.backend;
+    copy.format = this.format;
+    copy.parallelism = this.parallelism;
+    copy.layoutParallelism = this.layoutParallelism;
+    copy.layoutCache = this.layoutCache;
+    copy.layoutSizeThreshold = this.layoutSizeThreshold;
+    copy.layoutTimeBudget = this.layoutTimeBudget;
+    copy.layoutComponentsSeparately = this.layoutComponentsSeparately;
+    copy.manifest = this.manifest;
+    copy.reproducible = this.reproducible;
+    copy.executor = this.executor;
+    copy.ruleDeduplicator = this.ruleDeduplicator;
+    return copy;
+  }
+
+  /**
+   * Set the layout parameter.
+   *
+   * @param layout true if rules and graphs should be layouted.
+   * @return the options.
+   */
+  public GrooveWriterOptions layout(boolean layout) {
+    this.layout = layout;
+    return this;
+  }
+
+  /**
+   * Returns the layout parameter.
+   *
+   * @return true if rules and graphs should be layouted.
+   */
+  public boolean isLayout() {
+    return this.layout;
+  }
+
+  /**
+   * Set the backend used to write the gxl files.
+   *
+   * @param backend writer backend.
+   * @return the options.
+   */
+  public GrooveWriterOptions backend(GxlWriterBackend backend) {
+    if (backend == null) {
+      throw new IllegalArgumentException("Backend must not be null!");
+    }
+    this.backend = backend;
+    return this;
+  }
+
+  /**
+   * Returns the backend used to write the gxl files.
+   *
+   * @return writer backend.
+   */
+  public GxlWriterBackend getBackend() {
+    return this.backend;
+  }
+
+  /**
+   * Set the format of the written gxl files. Compact output is smaller and faster to write and
+   * load, while pretty output is easier to read.
+   *
+   * @param format output format.
+   * @return the options.
+   */
+  public GrooveWriterOptions format(GxlOutputFormat format) {
+    if (format == null) {
+      throw new IllegalArgumentException("Format must not be null!");
+    }
+    this.format = format;
+    return this;
+  }
+
+  /**
+   * Returns the format of the written gxl files.
+   *
+   * @return output format.
+   */
+  public GxlOutputFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Set the number of rules which are converted, layouted and written concurrently. Rules are
+   * written one after another if the parallelism is 1. The content of each written file does not
+   * depend on the parallelism.
+   *
+   * @param parallelism number of rules written concurrently (at least 1).
+   * @return the options.
+   */
+  public GrooveWriterOptions parallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1!");
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Returns the number of rules which are written concurrently.
+   *
+   * @return parallelism.
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Set the number of rules which are layouted concurrently while the rules are written one after
+   * another in stream order. Only a few layouted rules wait to be written, such that large rule
+   * streams are not materialized at once. Has no effect if the parallelism is greater than 1, since
+   * each rule is then layouted by the task writing it. Also the number of connected components of a
+   * graph or rule layouted concurrently if they are layouted separately, see {@link
+   * #layoutComponentsSeparately(boolean)}.
+   *
+   * @param layoutParallelism number of rules layouted concurrently (at least 1).
+   * @return the options.
+   */
+  public GrooveWriterOptions layoutParallelism(int layoutParallelism) {
+    if (layoutParallelism < 1) {
+      throw new IllegalArgumentException("Layout parallelism must be at least 1!");
+    }
+    this.layoutParallelism = layoutParallelism;
+    return this;
+  }
+
+  /**
+   * Returns the number of rules which are layouted concurrently.
+   *
+   * @return layout parallelism.
+   */
+  public int getLayoutParallelism() {
+    return this.layoutParallelism;
+  }
+
+  /**
+   * Set the cache used to reuse the layouts of rules and graphs with the same shape. The same
+   * cache can be used for several writes.
+   *
+   * @param layoutCache layout cache or null if layouts should not be cached.
+   * @return the options.
+   */
+  public GrooveWriterOptions layoutCache(GrooveLayoutCache layoutCache) {
+    this.layoutCache = layoutCache;
+    return this;
+  }
+
+  /**
+   * Returns the cache used to reuse layouts.
+   *
+   * @return layout cache or null if layouts are not cached.
+   */
+  public GrooveLayoutCache getLayoutCache() {
+    return this.layoutCache;
+  }
+
+  /**
+   * Set the maximum number of nodes of graphs and rules which are layouted using ELK. Larger
+   * graphs get a fast grid layout instead. The default is {@value DEFAULT_LAYOUT_SIZE_THRESHOLD}.
+   *
+   * @param layoutSizeThreshold maximum number of nodes layouted using ELK (at least 0).
+   * @return the options.
+   */
+  public GrooveWriterOptions layoutSizeThreshold(int layoutSizeThreshold) {
+    if (layoutSizeThreshold < 0) {
+      throw new IllegalArgumentException("Layout size threshold must not be negative!");
+    }
+    this.layoutSizeThreshold = layoutSizeThreshold;
+    return this;
+  }
+
+  /**
+   * Returns the maximum number of nodes of graphs and rules which are layouted using ELK.
+   *
+   * @return layout size threshold.
+   */
+  public int getLayoutSizeThreshold() {
+    return this.layoutSizeThreshold;
+  }
+
+  /**
+   * Set the time budget for the ELK layout of one graph or rule. Once it is used up, the layout is
+   * canceled and the fast grid layout is used instead. If the connected components are layouted
+   * separately, they share the budget, and components layouted after it is used up get the grid
+   * layout. ELK only stops between its layout phases, i.e., the budget is enforced at phase
+   * boundaries. Since the result of a canceled layout depends on the speed of the machine, it is
+   * not cached.
+   *
+   * @param layoutTimeBudget time budget or null for no limit (default).
+   * @return the options.
+   */
+  public GrooveWriterOptions layoutTimeBudget(Duration layoutTimeBudget) {
+    if (layoutTimeBudget != null && (layoutTimeBudget.isNegative() || layoutTimeBudget.isZero())) {
+      throw new IllegalArgumentException("Layout time budget must be positive!");
+    }
+    this.layoutTimeBudget = layoutTimeBudget;
+    return this;
+  }
+
+  /**
+   * Returns the time budget for the ELK layout of one graph or rule.
+   *
+   * @return time budget or null if there is no limit.
+   */
+  public Duration getLayoutTimeBudget() {
+    return this.layoutTimeBudget;
+  }
+
+  /**
+   * Set if the connected components of graphs and rules are layouted separately. The components are
+   * then layouted concurrently if the layout parallelism is greater than 1 and packed row by row,
+   * such that the layout time depends on the largest component instead of the whole graph. Threads
+   * which already write or layout rules concurrently layout the components one after another. For
+   * example, useful for start graphs which are unions of many disconnected graphs. Changes the
+   * layout compared to layouting the whole graph.
+   *
+   * @param layoutComponentsSeparately true if connected components are layouted separately.
+   * @return the options.
+   */
+  public GrooveWriterOptions layoutComponentsSeparately(boolean layoutComponentsSeparately) {
+    this.layoutComponentsSeparately = layoutComponentsSeparately;
+    return this;
+  }
+
+  /**
+   * Returns if the connected components of graphs and rules are layouted separately.
+   *
+   * @return true if connected components are layouted separately.
+   */
+  public boolean isLayoutComponentsSeparately() {
+    return this.layoutComponentsSeparately;
+  }
+
+  /**
+   * Set the manifest of the target directory. Files are then only written if their content changed
+   * according to the manifest. The hashes of all written and unchanged files are recorded in the
+   * manifest, which must be saved afterward.
+   *
+   * @param manifest manifest of the target directory or null to always write all files.
+   * @return the options.
+   */
+  public GrooveWriterOptions manifest(GrooveManifest manifest) {
+    this.manifest = manifest;
+    return this;
+  }
+
+  /**
+   * Returns the manifest of the target directory.
+   *
+   * @return manifest or null if all files are written.
+   */
+  public GrooveManifest getManifest() {
+    return this.manifest;
+  }
+
+  /**
+   * Set if the written files are reproducible, i.e., byte-identical for the same rules and graphs.
+   * Then, the nodes of each file are numbered in the written order starting from 0, independent of
+   * the id context they were created in, and the layout time budget is ignored since it depends on
+   * the machine.
+   *
+   * @param reproducible true if the written files should be reproducible.
+   * @return the options.
+   */
+  public GrooveWriterOptions reproducible(boolean reproducible) {
+    this.reproducible = reproducible;
+    return this;
+  }
+
+  /**
+   * Returns if the written files are reproducible.
+   *
+   * @return true if the written files are reproducible.
+   */
+  public boolean isReproducible() {
+    return this.reproducible;
+  }
+
+  /**
+   * Set the executor used to write or layout rules or connected components concurrently if the
+   * parallelism or layout parallelism is greater than 1. If no executor is set, a thread pool is
+   * created for each write and shut down afterward.
+   *
+   * @param executor executor or null to use a temporary thread pool.
+   * @return the options.
+   */
+  public GrooveWriterOptions executor(Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Returns the executor used to write or layout rules or connected components concurrently.
+   *
+   * @return executor or null if a temporary thread pool is used.
+   */
+  public Executor getExecutor() {
+    return this.executor;
+  }
+
+  /**
+   * Set the deduplicator used to skip rules which are identical to an already written rule up to
+   * their names and node ids. The names of the skipped rules can be retrieved from the
+   * deduplicator afterward. The deduplicator is reset at the start of each write of rules, such
+   * that writing the same rules again does not skip them as duplicates of the earlier write.
+   *
+   * @param ruleDeduplicator rule deduplicator or null to write all rules (default).
+   * @return the options.
+   */
+  public GrooveWriterOptions ruleDeduplicator(GrooveRuleDeduplicator ruleDeduplicator) {
+    this.ruleDeduplicator = ruleDeduplicator;
+    return this;
+  }
+
+  /**
+   * Returns the deduplicator used to skip identical rules.
+   *
+   * @return rule deduplicator or null if all rules are written.
+   */
+  public GrooveRuleDeduplicator getRuleDeduplicator() {
+    return this.ruleDeduplicator;
+  }
+}
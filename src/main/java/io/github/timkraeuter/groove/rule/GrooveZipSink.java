@@ -0,0 +1,97 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes files as entries of a zip archive to one stream in a single pass. Files written
+ * concurrently are written one after another, since the entries of an archive cannot be
+ * interleaved. Each file can only be written once. The archive is complete once the sink is
+ * closed.
+ */
+public class GrooveZipSink implements GrooveOutputSink, Closeable {
+  private final ZipOutputStream zip;
+  private final String entryPrefix;
+  private final LocalDateTime entryTime;
+  private final Set<String> writtenNames;
+
+  /**
+   * Create a zip sink. The entries get the current time as their modification time.
+   *
+   * @param out stream to write the archive to. Closed when the sink is closed.
+   * @param entryPrefix prefix of all entry names, for example, a folder like "name.gps/".
+   */
+  public GrooveZipSink(OutputStream out, String entryPrefix) {
+    this(out, entryPrefix, null);
+  }
+
+  /**
+   * Create a zip sink.
+   *
+   * @param out stream to write the archive to. Closed when the sink is closed.
+   * @param entryPrefix prefix of all entry names, for example, a folder like "name.gps/".
+   * @param entryTime modification time of all entries or null to use the current time.
+   */
+  public GrooveZipSink(OutputStream out, String entryPrefix, LocalDateTime entryTime) {
+    this.zip = new ZipOutputStream(new BufferedOutputStream(out, AtomicFileWriter.BUFFER_SIZE));
+    this.entryPrefix = entryPrefix;
+    this.entryTime = entryTime;
+    this.writtenNames = new HashSet<>();
+  }
+
+  @Override
+  public synchronized void write(String name, ContentWriter content) {
+    if (!writtenNames.add(name)) {
+      throw new IllegalArgumentException(
+          String.format("The file %s was already written to the archive!", name));
+    }
+    ZipEntry entry = new ZipEntry(entryPrefix + name);
+    if (entryTime != null) {
+      entry.setTimeLocal(entryTime);
+    }
+    try {
+      zip.putNextEntry(entry);
+      content.write(new EntryOutputStream(zip));
+      zip.closeEntry();
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(
+          String.format("The file %s could not be written to the archive.", name), e);
+    }
+  }
+
+  /**
+   * Finish the archive and close the underlying stream.
+   *
+   * @throws IOException if the archive cannot be finished.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    zip.close();
+  }
+
+  /** Protects the archive from being closed by content writers. */
+  private static class EntryOutputStream extends FilterOutputStream {
+    EntryOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Computes a SHA-256 hash of the elements of a gxl graph without writing or layouting it. Graphs
+ * with the same hash result in the same gxl file if written using the same settings.
+ */
+class GxlContentHash implements GxlGraphHandler {
+  private static final byte NODE = 'N';
+  private static final byte EDGE = 'E';
+
+  private final MessageDigest digest;
+  private final ByteBuffer longBuffer = ByteBuffer.allocate(Long.BYTES);
+
+  /**
+   * Create a hash for a gxl with one graph.
+   *
+   * @param graphId id of the graph.
+   * @param settings settings which influence the written file, for example, if it is layouted.
+   */
+  GxlContentHash(String graphId, String settings) {
+    try {
+      this.digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+    update(graphId);
+    update(settings);
+  }
+
+  @Override
+  public void node(long id, String label) {
+    digest.update(NODE);
+    update(id);
+    update(label);
+  }
+
+  @Override
+  public void edge(long sourceId, long targetId, String label) {
+    digest.update(EDGE);
+    update(sourceId);
+    update(targetId);
+    update(label);
+  }
+
+  /**
+   * Returns the hash of the received elements.
+   *
+   * @return hex encoded hash.
+   */
+  String getHash() {
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private void update(long value) {
+    longBuffer.clear();
+    longBuffer.putLong(value);
+    digest.update(longBuffer.array());
+  }
+
+  private void update(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    // The length prefix separates consecutive strings unambiguously.
+    update(bytes.length);
+    digest.update(bytes);
+  }
+}
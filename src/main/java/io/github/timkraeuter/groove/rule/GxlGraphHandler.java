@@ -0,0 +1,29 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.graph.GrooveNode;
+
+/**
+ * Receives the elements of a gxl graph in document order. Used to decouple the traversal of
+ * rules and graphs from the way the gxl is created (JAXB object model, streaming, layout). Nodes
+ * are identified by their numeric id, which is rendered using {@link GrooveNode#toNodeId(long)}
+ * only when the gxl is created.
+ */
+interface GxlGraphHandler {
+
+  /**
+   * A node with its label, i.e., a node element followed by a self-edge carrying the label.
+   *
+   * @param id numeric node id.
+   * @param label node label.
+   */
+  void node(long id, String label);
+
+  /**
+   * A labelled edge between two previously received nodes.
+   *
+   * @param sourceId numeric source node id.
+   * @param targetId numeric target node id.
+   * @param label edge label.
+   */
+  void edge(long sourceId, long targetId, String label);
+}
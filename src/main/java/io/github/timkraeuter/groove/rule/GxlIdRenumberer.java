@@ -0,0 +1,37 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Numbers the received nodes in the received order starting from 0 and passes them on to another
+ * handler. Thus, the ids in a gxl file do not depend on the id context or on other graphs.
+ */
+class GxlIdRenumberer implements GxlGraphHandler {
+  private final GxlGraphHandler delegate;
+  private final Map<Long, Long> oldToNewId;
+
+  GxlIdRenumberer(GxlGraphHandler delegate) {
+    this.delegate = delegate;
+    this.oldToNewId = new HashMap<>();
+  }
+
+  @Override
+  public void node(long id, String label) {
+    delegate.node(renumber(id), label);
+  }
+
+  @Override
+  public void edge(long sourceId, long targetId, String label) {
+    delegate.edge(renumber(sourceId), renumber(targetId), label);
+  }
+
+  private long renumber(long id) {
+    Long newId = oldToNewId.get(id);
+    if (newId == null) {
+      newId = (long) oldToNewId.size();
+      oldToNewId.put(id, newId);
+    }
+    return newId;
+  }
+}
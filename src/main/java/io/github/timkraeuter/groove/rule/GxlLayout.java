@@ -0,0 +1,446 @@
+package io.github.timkraeuter.groove.rule;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.eclipse.elk.alg.layered.options.LayeredMetaDataProvider;
+import org.eclipse.elk.core.RecursiveGraphLayoutEngine;
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+/**
+ * Collects the nodes and edges of a gxl graph and computes a layout for them using ELK or a fast
+ * grid layout for large graphs.
+ */
+class GxlLayout implements GxlGraphHandler {
+  private static final int XY_SHIFT_GROOVE_LAYOUT = 50;
+  private static final double NODE_HEIGHT = 50d;
+  private static final double WIDTH_PER_LABEL_CHAR = 15d;
+  private static final double GRID_SPACING = 50d;
+  private static final double COMPONENT_SPACING = 100d;
+
+  static {
+    // Needed when using ELK 0.8.1
+    LayoutMetaDataService.getInstance()
+        .registerLayoutMetaDataProviders(new LayeredMetaDataProvider());
+  }
+
+  /** Layout engines are not thread-safe, which is why every thread reuses its own engine. */
+  private static final ThreadLocal<RecursiveGraphLayoutEngine> LAYOUT_ENGINE =
+      ThreadLocal.withInitial(RecursiveGraphLayoutEngine::new);
+
+  private final Map<Long, Integer> nodeIdToIndex = new HashMap<>();
+  private double[] nodeWidths = new double[16];
+  private int nodeCount = 0;
+  private int[] edgeSources = new int[16];
+  private int[] edgeTargets = new int[16];
+  private int edgeCount = 0;
+  private double[] xs;
+  private double[] ys;
+
+  GxlLayout() {}
+
+  /** Creates the layout of a connected component, which is not filled using node ids. */
+  private GxlLayout(double[] nodeWidths, int[] edgeSources, int[] edgeTargets) {
+    this.nodeWidths = nodeWidths;
+    this.nodeCount = nodeWidths.length;
+    this.edgeSources = edgeSources;
+    this.edgeTargets = edgeTargets;
+    this.edgeCount = edgeSources.length;
+  }
+
+  @Override
+  public void node(long id, String label) {
+    if (nodeCount == nodeWidths.length) {
+      nodeWidths = Arrays.copyOf(nodeWidths, nodeCount * 2);
+    }
+    nodeIdToIndex.put(id, nodeCount);
+    nodeWidths[nodeCount++] = label.length() * WIDTH_PER_LABEL_CHAR;
+    // The label of a node is a self-edge in gxl.
+    edge(id, id, label);
+  }
+
+  @Override
+  public void edge(long sourceId, long targetId, String label) {
+    if (edgeCount == edgeSources.length) {
+      edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+      edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+    }
+    edgeSources[edgeCount] = nodeIdToIndex.get(sourceId);
+    edgeTargets[edgeCount++] = nodeIdToIndex.get(targetId);
+  }
+
+  /** Computes the layout for the received nodes and edges using the default options. */
+  void compute() {
+    compute(new GrooveWriterOptions());
+  }
+
+  /**
+   * Computes the layout for the received nodes and edges or reuses the cached layout of a graph
+   * with the same shape. Graphs larger than the layout size threshold and graphs for which ELK
+   * exceeds the layout time budget get a fast grid layout. The time budget is shared by the
+   * connected components if they are layouted separately.
+   *
+   * @param options options configuring the layout cache, size threshold, and time budget.
+   */
+  void compute(GrooveWriterOptions options) {
+    GrooveLayoutCache cache = options.getLayoutCache();
+    GrooveLayoutCache.Shape shape = null;
+    if (cache != null) {
+      shape =
+          new GrooveLayoutCache.Shape(
+              options.getLayoutSizeThreshold(),
+              options.isLayoutComponentsSeparately(),
+              Arrays.copyOf(nodeWidths, nodeCount),
+              Arrays.copyOf(edgeSources, edgeCount),
+              Arrays.copyOf(edgeTargets, edgeCount));
+      GrooveLayoutCache.Positions positions = cache.get(shape);
+      if (positions != null) {
+        xs = positions.xs();
+        ys = positions.ys();
+        return;
+      }
+    }
+    boolean completed = computePositions(options, Deadline.of(getTimeBudget(options)));
+    // Layouts replaced due to the time budget depend on the machine and are not cached.
+    if (cache != null && completed) {
+      cache.put(shape, new GrooveLayoutCache.Positions(xs, ys));
+    }
+  }
+
+  /**
+   * Returns false if the ELK layout ran out of time and the grid layout was used instead.
+   *
+   * @param deadline deadline of the ELK layouts or null if there is no time budget.
+   */
+  private boolean computePositions(GrooveWriterOptions options, Deadline deadline) {
+    if (options.isLayoutComponentsSeparately()) {
+      Components components = findComponents();
+      if (components.count() > 1) {
+        return computeComponentPositions(components, options, deadline);
+      }
+    }
+    return computeConnectedPositions(options, deadline);
+  }
+
+  private boolean computeConnectedPositions(GrooveWriterOptions options, Deadline deadline) {
+    if (nodeCount > options.getLayoutSizeThreshold()) {
+      computeGridLayout();
+      return true;
+    }
+    // Components layouted after the deadline do not start ELK anymore.
+    if ((deadline == null || !deadline.hasPassed()) && computeWithElk(deadline)) {
+      return true;
+    }
+    computeGridLayout();
+    return false;
+  }
+
+  private static Duration getTimeBudget(GrooveWriterOptions options) {
+    // A time budget makes the layout depend on the speed of the machine.
+    return options.isReproducible() ? null : options.getLayoutTimeBudget();
+  }
+
+  private boolean computeWithElk(Deadline deadline) {
+    ElkNode layoutGraph = ElkGraphUtil.createGraph();
+    ElkNode[] layoutNodes = new ElkNode[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      ElkNode node = ElkGraphUtil.createNode(layoutGraph);
+      node.setHeight(NODE_HEIGHT);
+      node.setWidth(nodeWidths[i]);
+      layoutNodes[i] = node;
+    }
+    for (int i = 0; i < edgeCount; i++) {
+      ElkGraphUtil.createSimpleEdge(layoutNodes[edgeSources[i]], layoutNodes[edgeTargets[i]]);
+    }
+
+    DeadlineProgressMonitor monitor =
+        deadline == null ? null : new DeadlineProgressMonitor(deadline);
+    LAYOUT_ENGINE.get().layout(layoutGraph, monitor == null ? new BasicProgressMonitor() : monitor);
+    if (monitor != null && monitor.hasCanceledLayout()) {
+      return false;
+    }
+
+    xs = new double[nodeCount];
+    ys = new double[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      xs[i] = layoutNodes[i].getX() + XY_SHIFT_GROOVE_LAYOUT;
+      ys[i] = layoutNodes[i].getY() + XY_SHIFT_GROOVE_LAYOUT;
+    }
+    return true;
+  }
+
+  /**
+   * Places the nodes row by row on a square grid in breadth-first order, such that connected nodes
+   * are close to each other. Linear in the size of the graph.
+   */
+  private void computeGridLayout() {
+    int[] order = findComponents().order();
+    int columns = (int) Math.ceil(Math.sqrt(nodeCount));
+    xs = new double[nodeCount];
+    ys = new double[nodeCount];
+    double x = 0;
+    double y = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      if (i > 0 && i % columns == 0) {
+        x = 0;
+        y += NODE_HEIGHT + GRID_SPACING;
+      }
+      int node = order[i];
+      xs[node] = x + XY_SHIFT_GROOVE_LAYOUT;
+      ys[node] = y + XY_SHIFT_GROOVE_LAYOUT;
+      x += nodeWidths[node] + GRID_SPACING;
+    }
+  }
+
+  /**
+   * Layouts the connected components and packs them row by row in the order of their first nodes.
+   * The components are layouted concurrently if the layout parallelism is greater than 1. Thus, the
+   * layout time depends on the largest component instead of the whole graph.
+   */
+  private boolean computeComponentPositions(
+      Components components, GrooveWriterOptions options, Deadline deadline) {
+    int[] order = components.order();
+    int[] componentOf = components.componentOf();
+    int[] componentIndexOfNode = new int[nodeCount];
+    GxlLayout[] componentLayouts = new GxlLayout[components.count()];
+    int[] componentEdgeCounts = new int[components.count()];
+    for (int i = 0; i < edgeCount; i++) {
+      // Edges always connect nodes of the same component.
+      componentEdgeCounts[componentOf[edgeSources[i]]]++;
+    }
+    for (int component = 0; component < components.count(); component++) {
+      int start = components.starts()[component];
+      double[] componentNodeWidths = new double[components.starts()[component + 1] - start];
+      for (int i = 0; i < componentNodeWidths.length; i++) {
+        int node = order[start + i];
+        componentIndexOfNode[node] = i;
+        componentNodeWidths[i] = nodeWidths[node];
+      }
+      componentLayouts[component] =
+          new GxlLayout(
+              componentNodeWidths,
+              new int[componentEdgeCounts[component]],
+              new int[componentEdgeCounts[component]]);
+    }
+    int[] componentEdges = new int[components.count()];
+    for (int i = 0; i < edgeCount; i++) {
+      int component = componentOf[edgeSources[i]];
+      int componentEdge = componentEdges[component]++;
+      componentLayouts[component].edgeSources[componentEdge] = componentIndexOfNode[edgeSources[i]];
+      componentLayouts[component].edgeTargets[componentEdge] = componentIndexOfNode[edgeTargets[i]];
+    }
+
+    boolean[] completed = new boolean[components.count()];
+    IntConsumer layoutComponent =
+        component ->
+            completed[component] =
+                componentLayouts[component].computeConnectedPositions(options, deadline);
+    if (options.getLayoutParallelism() == 1) {
+      IntStream.range(0, components.count()).forEach(layoutComponent);
+    } else {
+      GrooveRuleAndGraphWriter.runWithExecutor(
+          options,
+          Math.min(options.getLayoutParallelism(), components.count()),
+          executor -> layoutComponentsConcurrently(components.count(), layoutComponent, executor));
+    }
+
+    packComponents(components, componentLayouts);
+    for (boolean componentCompleted : completed) {
+      if (!componentCompleted) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void layoutComponentsConcurrently(
+      int componentCount, IntConsumer layoutComponent, Executor executor) {
+    CompletableFuture<?>[] componentLayouts =
+        IntStream.range(0, componentCount)
+            .mapToObj(
+                component ->
+                    CompletableFuture.runAsync(() -> layoutComponent.accept(component), executor))
+            .toArray(CompletableFuture[]::new);
+    try {
+      CompletableFuture.allOf(componentLayouts).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private void packComponents(Components components, GxlLayout[] componentLayouts) {
+    double[] minXs = new double[components.count()];
+    double[] minYs = new double[components.count()];
+    double[] widths = new double[components.count()];
+    double[] heights = new double[components.count()];
+    double totalArea = 0;
+    double maxWidth = 0;
+    for (int component = 0; component < components.count(); component++) {
+      GxlLayout componentLayout = componentLayouts[component];
+      double minX = Double.MAX_VALUE;
+      double minY = Double.MAX_VALUE;
+      double maxX = -Double.MAX_VALUE;
+      double maxY = -Double.MAX_VALUE;
+      for (int i = 0; i < componentLayout.nodeCount; i++) {
+        minX = Math.min(minX, componentLayout.xs[i]);
+        minY = Math.min(minY, componentLayout.ys[i]);
+        maxX = Math.max(maxX, componentLayout.xs[i] + componentLayout.nodeWidths[i]);
+        maxY = Math.max(maxY, componentLayout.ys[i] + NODE_HEIGHT);
+      }
+      minXs[component] = minX;
+      minYs[component] = minY;
+      widths[component] = maxX - minX;
+      heights[component] = maxY - minY;
+      totalArea += widths[component] * heights[component];
+      maxWidth = Math.max(maxWidth, widths[component]);
+    }
+
+    // Rows about as wide as the packed components are high.
+    double rowWidth = Math.max(Math.sqrt(totalArea), maxWidth);
+    xs = new double[nodeCount];
+    ys = new double[nodeCount];
+    double x = 0;
+    double y = 0;
+    double rowHeight = 0;
+    for (int component = 0; component < components.count(); component++) {
+      if (x > 0 && x + widths[component] > rowWidth) {
+        x = 0;
+        y += rowHeight + COMPONENT_SPACING;
+        rowHeight = 0;
+      }
+      GxlLayout componentLayout = componentLayouts[component];
+      int start = components.starts()[component];
+      for (int i = 0; i < componentLayout.nodeCount; i++) {
+        int node = components.order()[start + i];
+        xs[node] = componentLayout.xs[i] - minXs[component] + x + XY_SHIFT_GROOVE_LAYOUT;
+        ys[node] = componentLayout.ys[i] - minYs[component] + y + XY_SHIFT_GROOVE_LAYOUT;
+      }
+      x += widths[component] + COMPONENT_SPACING;
+      rowHeight = Math.max(rowHeight, heights[component]);
+    }
+  }
+
+  /** Finds the connected components ignoring edge directions using breadth-first search. */
+  private Components findComponents() {
+    // Neighbors of node i are neighbors[offsets[i]] to neighbors[offsets[i + 1] - 1].
+    int[] offsets = new int[nodeCount + 1];
+    for (int i = 0; i < edgeCount; i++) {
+      if (edgeSources[i] != edgeTargets[i]) {
+        offsets[edgeSources[i] + 1]++;
+        offsets[edgeTargets[i] + 1]++;
+      }
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] neighbors = new int[offsets[nodeCount]];
+    int[] nextNeighbor = Arrays.copyOf(offsets, nodeCount);
+    for (int i = 0; i < edgeCount; i++) {
+      if (edgeSources[i] != edgeTargets[i]) {
+        neighbors[nextNeighbor[edgeSources[i]]++] = edgeTargets[i];
+        neighbors[nextNeighbor[edgeTargets[i]]++] = edgeSources[i];
+      }
+    }
+
+    // The order is also the queue of the search.
+    int[] order = new int[nodeCount];
+    int[] componentOf = new int[nodeCount];
+    int[] starts = new int[nodeCount + 1];
+    boolean[] visited = new boolean[nodeCount];
+    int ordered = 0;
+    int count = 0;
+    for (int start = 0; start < nodeCount; start++) {
+      if (visited[start]) {
+        continue;
+      }
+      starts[count++] = ordered;
+      visited[start] = true;
+      order[ordered++] = start;
+      for (int head = ordered - 1; head < ordered; head++) {
+        int node = order[head];
+        for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+          if (!visited[neighbors[i]]) {
+            visited[neighbors[i]] = true;
+            order[ordered++] = neighbors[i];
+          }
+        }
+        componentOf[node] = count - 1;
+      }
+    }
+    starts[count] = ordered;
+    return new Components(order, Arrays.copyOf(starts, count + 1), componentOf, count);
+  }
+
+  /**
+   * Returns the value of the groove layout attribute of a node. The layout must be computed
+   * before.
+   *
+   * @param nodeId numeric id of the node.
+   * @return layout attribute value or null if the node is unknown.
+   */
+  String getLayout(long nodeId) {
+    Integer index = nodeIdToIndex.get(nodeId);
+    if (index == null) {
+      return null;
+    }
+    return String.format("%.0f %.0f 0 0", xs[index], ys[index]);
+  }
+
+  /**
+   * Connected components. The nodes of component c are order[starts[c]] to order[starts[c + 1] -
+   * 1] in breadth-first order.
+   */
+  private record Components(int[] order, int[] starts, int[] componentOf, int count) {}
+
+  /** Deadline of the ELK layouts of one graph or rule, i.e., of all its components. */
+  private record Deadline(long nanoTime) {
+    /** Returns the deadline after the time budget or null if there is no time budget. */
+    static Deadline of(Duration timeBudget) {
+      return timeBudget == null ? null : new Deadline(System.nanoTime() + timeBudget.toNanos());
+    }
+
+    boolean hasPassed() {
+      return System.nanoTime() - nanoTime > 0;
+    }
+  }
+
+  /**
+   * Cancels the layout once the deadline has passed. ELK only checks for cancellation between its
+   * layout phases, i.e., the budget is enforced at phase boundaries and a long phase can exceed it.
+   * Once ELK was told to cancel, the layout is replaced, even if ELK asked after its last phase.
+   */
+  private static class DeadlineProgressMonitor extends BasicProgressMonitor {
+    private final Deadline deadline;
+    private boolean canceled;
+
+    DeadlineProgressMonitor(Deadline deadline) {
+      this.deadline = deadline;
+      this.canceled = false;
+    }
+
+    @Override
+    public boolean isCanceled() {
+      if (!canceled && deadline.hasPassed()) {
+        canceled = true;
+      }
+      return canceled || super.isCanceled();
+    }
+
+    /** Returns true if ELK was told to cancel, i.e., the layout may be incomplete. */
+    boolean hasCanceledLayout() {
+      return canceled;
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package io.github.timkraeuter.groove.rule;
+
+/** The format of written gxl files. */
+public enum GxlOutputFormat {
+  /** Indented and with line breaks, which is readable for debugging. */
+  PRETTY,
+  /** Without any whitespace between elements, which results in considerably smaller files. */
+  COMPACT
+}
@@ -0,0 +1,217 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import io.github.timkraeuter.groove.graph.GrooveNode;
+import java.io.IOException;
+import java.io.Writer;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a gxl graph directly to a writer using StAX, i.e., without creating the JAXB object model.
+ * The written XML is the same as the one marshalled by the {@link GxlToXMLConverter}. Thus,
+ * whitespace which StAX writes as is but JAXB escapes is escaped explicitly, i.e., carriage returns
+ * in text and tabs, line feeds, and carriage returns in attribute values.
+ */
+class GxlStreamWriter implements GxlGraphHandler {
+  private static final String XML_DECLARATION =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+  private static final String GXL_NAMESPACE = "http://www.gupro.de/GXL/gxl-1.0.dtd";
+  private static final String NEW_LINE = "\n";
+  private static final String INDENT = "    ";
+  private static final String NODE = "node";
+  private static final String EDGE = "edge";
+  private static final String GRAPH = "graph";
+
+  /** We use the JDK default factory, since we rely on its escaping and empty element handling. */
+  private static final ThreadLocal<XMLOutputFactory> OUTPUT_FACTORY =
+      ThreadLocal.withInitial(XMLOutputFactory::newDefaultFactory);
+
+  private final Writer writer;
+  private final XMLStreamWriter xml;
+  private final String graphId;
+  private final GxlLayout layout;
+  private final boolean indent;
+  private boolean graphStarted;
+
+  /**
+   * Create a writer for a gxl with one graph.
+   *
+   * @param writer the writer to write to. It is flushed but not closed.
+   * @param graphId id of the graph.
+   * @param layout computed layout of the graph or null if the graph should not be layouted.
+   * @param format output format.
+   */
+  GxlStreamWriter(Writer writer, String graphId, GxlLayout layout, GxlOutputFormat format) {
+    this.writer = writer;
+    this.graphId = graphId;
+    this.layout = layout;
+    this.indent = format == GxlOutputFormat.PRETTY;
+    this.graphStarted = false;
+    try {
+      this.xml = OUTPUT_FACTORY.get().createXMLStreamWriter(writer);
+    } catch (XMLStreamException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+  }
+
+  /** Write the start of the document up to the graph element. */
+  void startDocument() {
+    try {
+      // StAX cannot write the standalone declaration, which is why we write it ourselves.
+      writer.write(XML_DECLARATION);
+      newLine();
+      xml.writeStartElement("gxl");
+      xml.writeDefaultNamespace(GXL_NAMESPACE);
+    } catch (IOException | XMLStreamException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+  }
+
+  @Override
+  public void node(long id, String label) {
+    try {
+      String nodeId = GrooveNode.toNodeId(id);
+      startGraphIfNeeded();
+      String nodeLayout = layout == null ? null : layout.getLayout(id);
+      indent(2);
+      if (nodeLayout == null) {
+        xml.writeEmptyElement(NODE);
+        xml.writeAttribute("id", nodeId);
+      } else {
+        xml.writeStartElement(NODE);
+        xml.writeAttribute("id", nodeId);
+        writeStringAttribute("layout", nodeLayout, 3);
+        indent(2);
+        xml.writeEndElement();
+      }
+    } catch (XMLStreamException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+    edge(id, id, label);
+  }
+
+  @Override
+  public void edge(long sourceId, long targetId, String label) {
+    try {
+      startGraphIfNeeded();
+      indent(2);
+      xml.writeStartElement(EDGE);
+      xml.writeAttribute("from", GrooveNode.toNodeId(sourceId));
+      xml.writeAttribute("to", GrooveNode.toNodeId(targetId));
+      writeStringAttribute("label", label, 3);
+      indent(2);
+      xml.writeEndElement();
+    } catch (XMLStreamException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+  }
+
+  /** Write the end of the document and flush the writer. */
+  void endDocument() {
+    try {
+      indent(1);
+      if (graphStarted) {
+        xml.writeEndElement();
+      } else {
+        xml.writeEmptyElement(GRAPH);
+        writeGraphAttributes();
+      }
+      newLine();
+      xml.writeEndElement();
+      newLine();
+      xml.flush();
+      writer.flush();
+    } catch (IOException | XMLStreamException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+  }
+
+  private void startGraphIfNeeded() throws XMLStreamException {
+    if (!graphStarted) {
+      indent(1);
+      xml.writeStartElement(GRAPH);
+      writeGraphAttributes();
+      graphStarted = true;
+    }
+  }
+
+  private void writeGraphAttributes() throws XMLStreamException {
+    // Same attributes as GrooveGxlHelper.createStandardGxlGraph.
+    writeAttribute("id", graphId);
+    xml.writeAttribute("role", "rule");
+    xml.writeAttribute("edgeids", "false");
+    xml.writeAttribute("edgemode", "directed");
+  }
+
+  private void writeStringAttribute(String name, String value, int level)
+      throws XMLStreamException {
+    indent(level);
+    xml.writeStartElement("attr");
+    xml.writeAttribute("name", name);
+    indent(level + 1);
+    xml.writeStartElement("string");
+    writeText(value);
+    xml.writeEndElement();
+    indent(level);
+    xml.writeEndElement();
+  }
+
+  /**
+   * Writes an attribute of the current start element. Tabs, line feeds, and carriage returns would
+   * be read as spaces if written as is. StAX cannot write character references in attribute values,
+   * which is why such values are written directly to the writer. The JDK writer writes the start
+   * element and its attributes immediately, such that the written attribute is in the right place.
+   */
+  private void writeAttribute(String name, String value) throws XMLStreamException {
+    if (value.indexOf('\t') == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+      xml.writeAttribute(name, value);
+      return;
+    }
+    StringBuilder attribute = new StringBuilder(" ").append(name).append("=\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&' -> attribute.append("&amp;");
+        case '<' -> attribute.append("&lt;");
+        case '>' -> attribute.append("&gt;");
+        case '"' -> attribute.append("&quot;");
+        case '\t' -> attribute.append("&#x9;");
+        case '\n' -> attribute.append("&#xA;");
+        case '\r' -> attribute.append("&#xD;");
+        default -> attribute.append(c);
+      }
+    }
+    attribute.append('"');
+    try {
+      xml.flush();
+      writer.write(attribute.toString());
+    } catch (IOException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+  }
+
+  /** Writes text with carriage returns as character references, since JAXB escapes them. */
+  private void writeText(String text) throws XMLStreamException {
+    int start = 0;
+    for (int i = text.indexOf('\r'); i != -1; i = text.indexOf('\r', start)) {
+      xml.writeCharacters(text.substring(start, i));
+      xml.writeEntityRef("#xD");
+      start = i + 1;
+    }
+    xml.writeCharacters(text.substring(start));
+  }
+
+  private void indent(int level) throws XMLStreamException {
+    if (indent) {
+      xml.writeCharacters(NEW_LINE + INDENT.repeat(level));
+    }
+  }
+
+  private void newLine() throws XMLStreamException {
+    if (indent) {
+      xml.writeCharacters(NEW_LINE);
+    }
+  }
+}
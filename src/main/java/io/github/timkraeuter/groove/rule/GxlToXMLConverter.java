@@ -5,47 +5,79 @@ import io.github.timkraeuter.groove.gxl.Gxl;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
-import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
-import java.nio.file.Files;
-import java.nio.file.Path;
 
 class GxlToXMLConverter {
 
+  /** Marshallers are not thread-safe, which is why every thread gets its own. */
+  private static final ThreadLocal<Marshaller> MARSHALLER =
+      ThreadLocal.withInitial(GxlToXMLConverter::createJAXBMarshaller);
+
   private GxlToXMLConverter() {}
 
-  public static void toXml(final Gxl gxl, Path outputFile) {
-    try {
-      Files.deleteIfExists(outputFile);
-      Files.createFile(outputFile);
+  /**
+   * Initializes the shared JAXB context and the marshaller of the calling thread, such that later
+   * conversions do not pay the JAXB bootstrap cost.
+   */
+  public static void warmUp() {
+    MARSHALLER.get();
+  }
 
-      Marshaller jaxbMarshaller = createJAXBMarshaller();
-      jaxbMarshaller.marshal(gxl, Files.newOutputStream(outputFile));
-    } catch (final JAXBException | IOException e) {
+  public static void toXml(final Gxl gxl, OutputStream out, GxlOutputFormat format) {
+    try {
+      getMarshaller(format).marshal(gxl, out);
+    } catch (final JAXBException e) {
       throw new ShouldNotHappenRuntimeException(e);
     }
   }
 
   public static String toXml(final Gxl graph) {
-    return marshallGraph(graph);
+    return toXml(graph, GxlOutputFormat.PRETTY);
   }
 
-  private static String marshallGraph(final Gxl graph) {
+  public static String toXml(final Gxl graph, GxlOutputFormat format) {
+    return marshallGraph(graph, format);
+  }
+
+  private static String marshallGraph(final Gxl graph, GxlOutputFormat format) {
     final StringWriter sw = new StringWriter();
     try {
-      Marshaller jaxbMarshaller = createJAXBMarshaller();
-      jaxbMarshaller.marshal(graph, sw);
+      getMarshaller(format).marshal(graph, sw);
     } catch (final JAXBException e) {
       throw new ShouldNotHappenRuntimeException(e);
     }
     return sw.toString();
   }
 
-  private static Marshaller createJAXBMarshaller() throws JAXBException {
-    JAXBContext jaxbContext = JAXBContext.newInstance(Gxl.class);
-    Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-    jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
+  private static Marshaller getMarshaller(GxlOutputFormat format) throws JAXBException {
+    Marshaller jaxbMarshaller = MARSHALLER.get();
+    jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, format == GxlOutputFormat.PRETTY);
     return jaxbMarshaller;
   }
+
+  private static Marshaller createJAXBMarshaller() {
+    try {
+      Marshaller jaxbMarshaller = JAXBContextHolder.CONTEXT.createMarshaller();
+      jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+      return jaxbMarshaller;
+    } catch (final JAXBException e) {
+      throw new ShouldNotHappenRuntimeException(e);
+    }
+  }
+
+  /** The JAXB context is thread-safe and expensive to create, so it is created once per JVM. */
+  private static final class JAXBContextHolder {
+    private static final JAXBContext CONTEXT = createJAXBContext();
+
+    private JAXBContextHolder() {}
+
+    private static JAXBContext createJAXBContext() {
+      try {
+        return JAXBContext.newInstance(Gxl.class);
+      } catch (final JAXBException e) {
+        throw new ShouldNotHappenRuntimeException(e);
+      }
+    }
+  }
 }
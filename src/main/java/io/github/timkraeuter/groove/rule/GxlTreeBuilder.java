@@ -0,0 +1,57 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.gxl.Graph;
+import io.github.timkraeuter.groove.gxl.Gxl;
+import io.github.timkraeuter.groove.graph.GrooveNode;
+import io.github.timkraeuter.groove.gxl.Node;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Builds the JAXB object model of a gxl graph. */
+class GxlTreeBuilder implements GxlGraphHandler {
+  private final Gxl gxl;
+  private final Graph graph;
+  private final GxlLayout layout;
+  private final Map<Long, Node> idToGxlNode;
+
+  /**
+   * Create a builder for a gxl with one graph.
+   *
+   * @param graphId id of the graph.
+   * @param layout computed layout of the graph or null if the graph should not be layouted.
+   */
+  GxlTreeBuilder(String graphId, GxlLayout layout) {
+    this.gxl = new Gxl();
+    this.graph = GrooveGxlHelper.createStandardGxlGraph(graphId, gxl);
+    this.layout = layout;
+    this.idToGxlNode = new HashMap<>();
+  }
+
+  @Override
+  public void node(long id, String label) {
+    Node gxlNode = GrooveGxlHelper.createNodeWithName(GrooveNode.toNodeId(id), label, graph);
+    if (layout != null) {
+      GrooveGxlHelper.addLayoutToNode(gxlNode, layout.getLayout(id));
+    }
+    idToGxlNode.put(id, gxlNode);
+  }
+
+  @Override
+  public void edge(long sourceId, long targetId, String label) {
+    Node sourceNode = idToGxlNode.get(sourceId);
+    Node targetNode = idToGxlNode.get(targetId);
+    assert sourceNode != null;
+    assert targetNode != null;
+
+    GrooveGxlHelper.createEdgeWithName(graph, sourceNode, targetNode, label);
+  }
+
+  /**
+   * Returns the built gxl.
+   *
+   * @return gxl.
+   */
+  Gxl getGxl() {
+    return gxl;
+  }
+}
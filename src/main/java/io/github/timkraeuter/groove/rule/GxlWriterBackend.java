@@ -0,0 +1,12 @@
+package io.github.timkraeuter.groove.rule;
+
+/** The backend used to write rules and graphs as gxl files. */
+public enum GxlWriterBackend {
+  /** Builds the JAXB object model of each rule/graph and marshals it. */
+  JAXB,
+  /**
+   * Streams each rule/graph directly using StAX without building an object model. The output is
+   * the same as the one of the JAXB backend.
+   */
+  STAX
+}
@@ -0,0 +1,102 @@
+package io.github.timkraeuter.groove.rule;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Runs named write tasks concurrently on an executor. The number of pending tasks is bounded, such
+ * that a lazily produced stream of rules is not materialized at once. Failures of individual tasks,
+ * including errors, do not stop the other tasks and are reported together once all tasks are done.
+ */
+class ParallelWriteTasks {
+  private final Executor executor;
+  private final int maxPendingTasks;
+  private final Semaphore pendingTasks;
+  private final List<TaskFailure> failures;
+  private int submittedTasks;
+
+  /**
+   * Create parallel write tasks.
+   *
+   * @param executor executor running the tasks.
+   * @param maxPendingTasks maximum number of submitted but not finished tasks.
+   */
+  ParallelWriteTasks(Executor executor, int maxPendingTasks) {
+    this.executor = executor;
+    this.maxPendingTasks = maxPendingTasks;
+    this.pendingTasks = new Semaphore(maxPendingTasks);
+    this.failures = new ArrayList<>();
+    this.submittedTasks = 0;
+  }
+
+  /**
+   * Submit a task. Blocks if the maximum number of pending tasks is reached.
+   *
+   * @param name name of the task used when reporting failures, for example, the rule name.
+   * @param task the task.
+   */
+  void submit(String name, Runnable task) {
+    int taskIndex = submittedTasks++;
+    pendingTasks.acquireUninterruptibly();
+    try {
+      executor.execute(
+          () -> {
+            try {
+              task.run();
+            } catch (Throwable e) {
+              addFailure(new TaskFailure(taskIndex, name, e));
+            } finally {
+              pendingTasks.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      pendingTasks.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Wait until all submitted tasks are done.
+   *
+   * @throws ShouldNotHappenRuntimeException if at least one task failed. The failures of further
+   *     tasks are added as suppressed exceptions.
+   */
+  void awaitCompletion() {
+    pendingTasks.acquireUninterruptibly(maxPendingTasks);
+    pendingTasks.release(maxPendingTasks);
+
+    List<TaskFailure> sortedFailures;
+    synchronized (failures) {
+      if (failures.isEmpty()) {
+        return;
+      }
+      // Report failures in submission order to be deterministic.
+      sortedFailures =
+          failures.stream().sorted(Comparator.comparingInt(TaskFailure::index)).toList();
+    }
+    ShouldNotHappenRuntimeException exception =
+        new ShouldNotHappenRuntimeException(
+            String.format(
+                "Writing failed for %s!",
+                sortedFailures.stream().map(TaskFailure::name).collect(Collectors.joining(", "))),
+            sortedFailures.get(0).exception());
+    sortedFailures.stream()
+        .skip(1)
+        .forEach(failure -> exception.addSuppressed(failure.exception()));
+    throw exception;
+  }
+
+  private void addFailure(TaskFailure failure) {
+    synchronized (failures) {
+      failures.add(failure);
+    }
+  }
+
+  private record TaskFailure(int index, String name, Throwable exception) {}
+}
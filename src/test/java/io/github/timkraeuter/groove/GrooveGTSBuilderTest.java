@@ -4,11 +4,38 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import io.github.timkraeuter.groove.graph.GrooveIdContext;
 import io.github.timkraeuter.groove.graph.GrooveNode;
+import io.github.timkraeuter.groove.rule.GrooveInMemorySink;
+import io.github.timkraeuter.groove.rule.GrooveManifest;
+import io.github.timkraeuter.groove.rule.GrooveRuleDeduplicator;
+import io.github.timkraeuter.groove.rule.GrooveStreamSink;
+import io.github.timkraeuter.groove.rule.GxlOutputFormat;
+import io.github.timkraeuter.groove.rule.GxlWriterBackend;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -116,6 +143,48 @@ class GrooveGTSBuilderTest {
     assertThat(rule, is(EXPECTED_RULE));
   }
 
+  @Test
+  void writeRulesTwiceLeavesOnlyTheRuleFileTest() throws IOException {
+    buildSampleRule();
+
+    grooveGTSBuilder.writeRules(tempDir);
+    grooveGTSBuilder.backend(GxlWriterBackend.STAX).writeRules(tempDir);
+
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(
+          files.map(file -> file.getFileName().toString()).toList(), is(List.of("Test.gpr")));
+    }
+    assertThat(readFileFromDir(tempDir, "Test.gpr"), is(EXPECTED_RULE));
+  }
+
+  @Test
+  void writeRulesWithDefaultPermissionsTest() throws IOException {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    buildSampleRule();
+
+    grooveGTSBuilder.writeRules(tempDir);
+
+    // Same permissions as any other new file, i.e., not only readable by the owner.
+    Path referenceFile = Files.createFile(Path.of(tempDir.toString(), "reference"));
+    assertThat(
+        Files.getPosixFilePermissions(Path.of(tempDir.toString(), "Test.gpr")),
+        is(Files.getPosixFilePermissions(referenceFile)));
+  }
+
+  @Test
+  void writeCompactTest() throws IOException {
+    buildSampleRule();
+    grooveGTSBuilder.format(GxlOutputFormat.COMPACT);
+
+    grooveGTSBuilder.writeRules(tempDir);
+    String jaxbRule = readFileFromDir(tempDir, "Test.gpr");
+    grooveGTSBuilder.backend(GxlWriterBackend.STAX).writeRules(tempDir);
+    String staxRule = readFileFromDir(tempDir, "Test.gpr");
+
+    assertThat(jaxbRule, is(EXPECTED_RULE.replaceAll("\n\\s*", "")));
+    assertThat(staxRule, is(jaxbRule));
+  }
+
   private void buildSampleRule() {
     GrooveNode.setIDCounter(-1);
     grooveGTSBuilder.rules().startRule("Test");
@@ -127,6 +196,35 @@ class GrooveGTSBuilderTest {
     grooveGTSBuilder.rules().buildRule();
   }
 
+  @Test
+  void buildWithOwnIdContextsConcurrentlyTest() throws Exception {
+    // Changing the global counter does not influence builders with their own id context.
+    GrooveNode.setIDCounter(41);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<String>> rules = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        Path dir = Files.createTempDirectory("");
+        rules.add(
+            executor.submit(
+                () -> {
+                  GrooveGTSBuilder builder = new GrooveGTSBuilder(new GrooveIdContext());
+                  builder.rules().startRule("Test");
+                  GrooveNode a = builder.rules().addNode("A");
+                  GrooveNode b = builder.rules().addNode("B");
+                  builder.rules().addEdge("A to B", a, b).buildRule();
+                  builder.writeRules(dir);
+                  return readFileFromDir(dir, "Test.gpr");
+                }));
+      }
+      for (Future<String> rule : rules) {
+        assertThat(rule.get(), is(EXPECTED_RULE));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   void writeStartGraphTest() throws IOException {
     buildSampleStartGraph();
@@ -141,6 +239,81 @@ class GrooveGTSBuilderTest {
     assertThat(startGraph, is(EXPECTED_START_GRAPH_LAYOUT));
   }
 
+  @Test
+  void writeWithStaxBackendTest() throws IOException {
+    grooveGTSBuilder.backend(GxlWriterBackend.STAX);
+    buildSampleStartGraph();
+    buildSampleRule();
+
+    grooveGTSBuilder.writeRules(tempDir);
+
+    assertThat(readFileFromDir(tempDir, "start.gst"), is(EXPECTED_START_GRAPH));
+    assertThat(readFileFromDir(tempDir, "Test.gpr"), is(EXPECTED_RULE));
+
+    grooveGTSBuilder.layout(true);
+    grooveGTSBuilder.writeStartGraph(tempDir);
+
+    assertThat(readFileFromDir(tempDir, "start.gst"), is(EXPECTED_START_GRAPH_LAYOUT));
+  }
+
+  @Test
+  void writeStartGraphAboveLayoutSizeThresholdTest() throws IOException {
+    buildSampleStartGraph();
+
+    grooveGTSBuilder.layout(true).layoutSizeThreshold(1);
+    grooveGTSBuilder.writeStartGraph(tempDir);
+
+    // Grid layout instead of ELK.
+    assertThat(
+        readFileFromDir(tempDir, "start.gst"),
+        is(
+            EXPECTED_START_GRAPH_LAYOUT
+                .replace("62 72 0 0", "50 50 0 0")
+                .replace("97 72 0 0", "115 50 0 0")));
+  }
+
+  @Test
+  void writeStartGraphWithComponentsLayoutedSeparatelyTest() throws IOException {
+    buildSampleStartGraph();
+
+    grooveGTSBuilder.layout(true).layoutComponentsSeparately(true).layoutSizeThreshold(0);
+    grooveGTSBuilder.writeStartGraph(tempDir);
+
+    // Both nodes are components, which are packed below each other.
+    assertThat(
+        readFileFromDir(tempDir, "start.gst"),
+        is(
+            EXPECTED_START_GRAPH_LAYOUT
+                .replace("62 72 0 0", "50 50 0 0")
+                .replace("97 72 0 0", "50 200 0 0")));
+  }
+
+  @Test
+  void writeStartGraphWithComponentsLayoutedConcurrentlyTest() throws IOException {
+    buildSampleStartGraph();
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      grooveGTSBuilder
+          .layout(true)
+          .layoutComponentsSeparately(true)
+          .layoutSizeThreshold(0)
+          .layoutParallelism(2)
+          .executor(executor);
+      grooveGTSBuilder.writeStartGraph(tempDir);
+    } finally {
+      executor.shutdown();
+    }
+
+    // The same layout as when layouting the components one after another.
+    assertThat(
+        readFileFromDir(tempDir, "start.gst"),
+        is(
+            EXPECTED_START_GRAPH_LAYOUT
+                .replace("62 72 0 0", "50 50 0 0")
+                .replace("97 72 0 0", "50 200 0 0")));
+  }
+
   private void buildSampleStartGraph() {
     GrooveNode.setIDCounter(-1);
     grooveGTSBuilder
@@ -192,6 +365,224 @@ class GrooveGTSBuilderTest {
     assertThat(propertiesContent, containsString("grammarVersion=3.7"));
   }
 
+  @Test
+  void writeGTSReportsFailedStagesTest() throws IOException {
+    grooveGTSBuilder.name("failing");
+    buildSampleStartGraph();
+    // Rules in a non-existing subfolder cannot be written.
+    grooveGTSBuilder.rules().startRule("missing/Test");
+    grooveGTSBuilder.rules().addNode("A");
+    grooveGTSBuilder.rules().buildRule();
+
+    ShouldNotHappenRuntimeException exception =
+        assertThrows(
+            ShouldNotHappenRuntimeException.class, () -> grooveGTSBuilder.writeGTS(tempDir));
+
+    assertThat(exception.getMessage(), containsString("could not be written completely"));
+    // The other stages are still completed.
+    Path gtsDir = Path.of(tempDir.toString(), "failing.gps");
+    assertThat(readFileFromDir(gtsDir, "start.gst"), is(EXPECTED_START_GRAPH));
+    assertThat(
+        readFileFromDir(gtsDir, "system.properties"), containsString("grooveVersion=6.1.0"));
+  }
+
+  @Test
+  void writeGTSIncrementallyTest() throws IOException {
+    Path gtsDir = createIncrementalGTS("Unchanged", "Removed").writeGTS(tempDir);
+    assertThat(readFileFromDir(gtsDir, "Removed.gpr"), containsString("Removed"));
+    // Marks the file to detect if it is written again.
+    Files.writeString(Path.of(gtsDir.toString(), "Unchanged.gpr"), "not rewritten");
+
+    createIncrementalGTS("Unchanged", "Added").writeGTS(tempDir);
+
+    assertThat(readFileFromDir(gtsDir, "Unchanged.gpr"), is("not rewritten"));
+    assertThat(readFileFromDir(gtsDir, "Added.gpr"), containsString("Added"));
+    assertThat(Files.exists(Path.of(gtsDir.toString(), "Removed.gpr")), is(false));
+    assertThat(readFileFromDir(gtsDir, "start.gst"), is(EXPECTED_START_GRAPH));
+    String manifest = readFileFromDir(gtsDir, GrooveManifest.FILE_NAME);
+    assertThat(manifest, containsString("  Added.gpr\n"));
+    assertThat(manifest, containsString("  Unchanged.gpr\n"));
+    assertThat(manifest, containsString("  start.gst\n"));
+    assertThat(manifest, not(containsString("Removed")));
+  }
+
+  @Test
+  void writeGTSIncrementallyWithDeduplicatorTest() throws IOException {
+    GrooveRuleDeduplicator deduplicator = new GrooveRuleDeduplicator();
+    Path gtsDir =
+        createIncrementalGTS("First", "Second").ruleDeduplicator(deduplicator).writeGTS(tempDir);
+
+    // Same rules again, which must not be duplicates of themselves from the first write.
+    createIncrementalGTS("First", "Second").ruleDeduplicator(deduplicator).writeGTS(tempDir);
+
+    assertThat(readFileFromDir(gtsDir, "First.gpr"), containsString("First"));
+    assertThat(readFileFromDir(gtsDir, "Second.gpr"), containsString("Second"));
+    assertThat(deduplicator.getDuplicates().isEmpty(), is(true));
+  }
+
+  @Test
+  void writeGTSWithRulesWrittenThroughTest() throws IOException {
+    grooveGTSBuilder.name("writtenThrough").parallelism(2);
+    buildSampleStartGraph();
+    // Built before, written first.
+    buildSampleRule();
+
+    Path gtsDir = grooveGTSBuilder.writeRulesThrough(tempDir);
+    for (int i = 0; i < 10; i++) {
+      grooveGTSBuilder.rules().startRule("Rule" + i);
+      grooveGTSBuilder.rules().addNode("A" + i);
+      grooveGTSBuilder.rules().buildRule();
+    }
+    assertThrows(
+        IllegalStateException.class, () -> grooveGTSBuilder.writeGTS(new GrooveInMemorySink()));
+    grooveGTSBuilder.writeGTS(tempDir);
+
+    assertThat(grooveGTSBuilder.rules().getRules().count(), is(0L));
+    assertThat(readFileFromDir(gtsDir, "Test.gpr"), is(EXPECTED_RULE));
+    assertThat(readFileFromDir(gtsDir, "Rule9.gpr"), containsString("A9"));
+    assertThat(readFileFromDir(gtsDir, "start.gst"), is(EXPECTED_START_GRAPH));
+    assertThat(readFileFromDir(gtsDir, "system.properties"), containsString("startGraph=start"));
+  }
+
+  @Test
+  void writeGTSReproduciblyTest() throws IOException {
+    List<Path> gtsDirs = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      // The global id counter differs for each GTS.
+      GrooveNode.setIDCounter(41 * i);
+      GrooveGTSBuilder builder = new GrooveGTSBuilder().name("reproducible" + i).reproducible(true);
+      builder.startGraph().name("start").createNode("A");
+      builder.startGraph().createNode("B");
+      builder.rules().startRule("Test");
+      GrooveNode a = builder.rules().addNode("A");
+      GrooveNode b = builder.rules().addNode("B");
+      builder.rules().addEdge("A to B", a, b).buildRule();
+      gtsDirs.add(builder.writeGTS(tempDir));
+    }
+
+    for (Path gtsDir : gtsDirs) {
+      assertThat(readFileFromDir(gtsDir, "start.gst"), is(EXPECTED_START_GRAPH));
+      assertThat(readFileFromDir(gtsDir, "Test.gpr"), is(EXPECTED_RULE));
+      assertThat(
+          readFileFromDir(gtsDir, "system.properties"),
+          containsString("# (graph rule generation"));
+    }
+    assertThat(
+        readFileFromDir(gtsDirs.get(0), "system.properties"),
+        is(readFileFromDir(gtsDirs.get(1), "system.properties")));
+  }
+
+  @Test
+  void writePropertiesFileWithFixedTimestampTest() throws IOException {
+    grooveGTSBuilder.timestamp(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+
+    grooveGTSBuilder.writePropertiesFile(tempDir);
+
+    assertThat(
+        readFileFromDir(tempDir, "system.properties"),
+        containsString("# 02/01/2024 03:04:05 (graph rule generation"));
+  }
+
+  @Test
+  void writeGTSArchiveTest() throws IOException {
+    grooveGTSBuilder.name("archived");
+    buildSampleStartGraph();
+    buildSampleRule();
+
+    Path archive = grooveGTSBuilder.writeGTSArchive(tempDir);
+
+    assertThat(archive.getFileName().toString(), is("archived.gps.zip"));
+    Map<String, String> entries = new LinkedHashMap<>();
+    try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(archive))) {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+      }
+    }
+    assertThat(
+        List.copyOf(entries.keySet()),
+        is(
+            List.of(
+                "archived.gps/system.properties",
+                "archived.gps/start.gst",
+                "archived.gps/Test.gpr")));
+    assertThat(
+        entries.get("archived.gps/system.properties"), containsString("grooveVersion=6.1.0"));
+    assertThat(entries.get("archived.gps/start.gst"), is(EXPECTED_START_GRAPH));
+    assertThat(entries.get("archived.gps/Test.gpr"), is(EXPECTED_RULE));
+  }
+
+  @Test
+  void writeGTSArchiveReproduciblyInParallelTest() throws IOException {
+    grooveGTSBuilder.name("archived").reproducible(true).parallelism(4);
+    buildSampleStartGraph();
+    for (int i = 0; i < 20; i++) {
+      grooveGTSBuilder.rules().startRule("Rule" + i);
+      grooveGTSBuilder.rules().addNode("A" + i);
+      grooveGTSBuilder.rules().buildRule();
+    }
+
+    byte[] firstArchive = Files.readAllBytes(grooveGTSBuilder.writeGTSArchive(tempDir));
+    byte[] secondArchive = Files.readAllBytes(grooveGTSBuilder.writeGTSArchive(tempDir));
+
+    assertThat(Arrays.equals(firstArchive, secondArchive), is(true));
+    List<String> entryNames = new ArrayList<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(firstArchive))) {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        entryNames.add(entry.getName());
+      }
+    }
+    // Rules are added in the order they were built.
+    assertThat(entryNames.get(2), is("archived.gps/Rule0.gpr"));
+    assertThat(entryNames.get(21), is("archived.gps/Rule19.gpr"));
+  }
+
+  @Test
+  void writeGTSToMemoryTest() throws IOException {
+    buildSampleStartGraph();
+    buildSampleRule();
+    GrooveInMemorySink sink = new GrooveInMemorySink();
+
+    grooveGTSBuilder.writeGTS(sink);
+
+    assertThat(
+        List.copyOf(sink.getFiles().keySet()),
+        is(List.of("Test.gpr", "start.gst", "system.properties")));
+    assertThat(
+        new String(sink.getFile("start.gst"), StandardCharsets.UTF_8), is(EXPECTED_START_GRAPH));
+    assertThat(new String(sink.getFile("Test.gpr"), StandardCharsets.UTF_8), is(EXPECTED_RULE));
+    // Nothing besides the start graph written by buildSampleStartGraph() is written to disk.
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(
+          files.map(file -> file.getFileName().toString()).toList(), is(List.of("start.gst")));
+    }
+  }
+
+  @Test
+  void writeRulesToStreamPerFileTest() {
+    buildSampleRule();
+    Map<String, ByteArrayOutputStream> streams = new ConcurrentHashMap<>();
+
+    grooveGTSBuilder.writeRules(
+        new GrooveStreamSink(
+            name -> streams.computeIfAbsent(name, key -> new ByteArrayOutputStream())));
+
+    assertThat(streams.keySet(), is(Set.of("Test.gpr")));
+    assertThat(streams.get("Test.gpr").toString(StandardCharsets.UTF_8), is(EXPECTED_RULE));
+  }
+
+  private GrooveGTSBuilder createIncrementalGTS(String... ruleNames) {
+    GrooveGTSBuilder builder = new GrooveGTSBuilder(new GrooveIdContext());
+    builder.name("incremental").incremental(true);
+    builder.startGraph().name("start").createNode("A");
+    builder.startGraph().createNode("B");
+    for (String ruleName : ruleNames) {
+      builder.rules().startRule(ruleName);
+      builder.rules().addNode(ruleName);
+      builder.rules().buildRule();
+    }
+    return builder;
+  }
+
   private String readFileFromDir(Path dir, String filename) throws IOException {
     return Files.readString(Path.of(dir.toString(), filename));
   }
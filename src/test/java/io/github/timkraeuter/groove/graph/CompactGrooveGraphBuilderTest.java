@@ -0,0 +1,90 @@
+package io.github.timkraeuter.groove.graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.timkraeuter.groove.rule.GrooveWriterOptions;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CompactGrooveGraphBuilderTest {
+
+  @Test
+  void testBuilder() {
+    CompactGrooveGraphBuilder builder = new CompactGrooveGraphBuilder().name("Graph");
+    int a = builder.addNode("A");
+    int b = builder.addNode("B");
+    int c = builder.addNode("C");
+    // Edges are grouped by their source node.
+    builder.addEdge("C to A", c, a).addEdge("A to B", a, b).addEdge("A to C", a, c);
+    builder.addFlag(b, "flag").addAttribute(a, "count", 3);
+    CompactGrooveGraph graph = builder.build();
+
+    assertEquals("Graph", graph.getName());
+    assertEquals(3, graph.getNodeCount());
+    assertEquals(3, graph.getEdgeCount());
+    assertEquals("B", graph.getNodeLabel(b));
+    assertEquals(0, graph.getOutEdgesStart(a));
+    assertEquals(2, graph.getOutEdgesEnd(a));
+    assertEquals(2, graph.getOutEdgesStart(b));
+    assertEquals(2, graph.getOutEdgesEnd(b));
+    assertEquals("A to C", graph.getEdgeLabel(1));
+    assertEquals(c, graph.getEdgeTarget(1));
+    assertEquals(c, graph.getEdgeSource(2));
+    assertEquals(List.of("flag"), graph.getFlags(b));
+    assertEquals(List.of(), graph.getFlags(a));
+    assertEquals("3", graph.getAttributes(a).get("count").getValue());
+    assertEquals(
+        List.of("n0", "n1", "n2"), graph.nodes().map(CompactGrooveGraph.Node::getId).toList());
+    assertEquals(
+        List.of("A to B", "A to C", "C to A"),
+        graph.edges().map(CompactGrooveGraph.Edge::getLabel).toList());
+  }
+
+  @Test
+  void testDuplicateFlags() {
+    CompactGrooveGraphBuilder builder = new CompactGrooveGraphBuilder();
+    int a = builder.addNode("A");
+    int b = builder.addNode("B");
+    int c = builder.addNode("C");
+    builder.addFlag(c, "x").addFlag(a, "x").addFlag(a, "y").addFlag(c, "x").addFlag(a, "x");
+    CompactGrooveGraph graph = builder.build();
+
+    assertEquals(List.of("x", "y"), graph.getFlags(a));
+    assertEquals(List.of(), graph.getFlags(b));
+    assertEquals(List.of("x"), graph.getFlags(c));
+  }
+
+  @Test
+  void testUnknownNode() {
+    CompactGrooveGraphBuilder builder = new CompactGrooveGraphBuilder();
+    int a = builder.addNode("A");
+
+    assertThrows(IllegalArgumentException.class, () -> builder.addEdge("A to ?", a, 1));
+  }
+
+  @Test
+  void testWriteLikeGrooveGraph() throws Exception {
+    Path tempDir = Files.createTempDirectory("");
+    CompactGrooveGraphBuilder compactBuilder = new CompactGrooveGraphBuilder().name("Graph");
+    int a = compactBuilder.addNode("A");
+    int b = compactBuilder.addNode("B");
+    compactBuilder.addEdge("A to B", a, b).addFlag(a, "flag").addAttribute(b, "name", "b");
+    compactBuilder.addFlag(a, "other").addFlag(a, "flag");
+    compactBuilder.build().write(tempDir, "compact.gst", new GrooveWriterOptions());
+
+    GrooveGraphBuilder builder = new GrooveGraphBuilder(new GrooveIdContext()).name("Graph");
+    GrooveNode nodeA = builder.createNode("A");
+    GrooveNode nodeB = builder.createNode("B");
+    nodeA.addFlag("flag");
+    nodeA.addFlag("other");
+    nodeA.addFlag("flag");
+    nodeB.addAttribute("name", "b");
+    builder.addEdge("A to B", nodeA, nodeB).build().write(tempDir, "graph.gst", false);
+
+    assertEquals(
+        Files.readString(tempDir.resolve("graph.gst")),
+        Files.readString(tempDir.resolve("compact.gst")));
+  }
+}
@@ -17,4 +17,14 @@ class GrooveGraphBuilderTest {
     assertEquals(2, graph.nodes().count());
     assertEquals(1, graph.edges().count());
   }
+
+  @Test
+  void testNodeIds() {
+    GrooveNode.setIDCounter(41);
+    GrooveNode node = new GrooveNode("A");
+
+    assertEquals(42, node.getNumericId());
+    assertEquals("n42", node.getId());
+    assertEquals("n42", GrooveNode.toNodeId(42));
+  }
 }
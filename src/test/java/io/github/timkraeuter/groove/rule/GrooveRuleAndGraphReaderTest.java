@@ -0,0 +1,184 @@
+package io.github.timkraeuter.groove.rule;
+
+import static io.github.timkraeuter.util.FileTestHelper.getResource;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.timkraeuter.groove.graph.GrooveEdge;
+import io.github.timkraeuter.groove.graph.GrooveGraph;
+import io.github.timkraeuter.groove.graph.GrooveGraphBuilder;
+import io.github.timkraeuter.groove.graph.GrooveIdContext;
+import io.github.timkraeuter.groove.graph.GrooveNode;
+import io.github.timkraeuter.groove.graph.GrooveValue;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class GrooveRuleAndGraphReaderTest {
+
+  @Test
+  void readRuleTest() {
+    GrooveGraphRule rule =
+        GrooveRuleAndGraphReader.readRule(getResource("lmcs-rule.gpr"), new GrooveIdContext());
+
+    assertThat(rule.getRuleName(), is("lmcs-rule"));
+    assertThat(getNames(rule.getContextNodes()), is(List.of("A", "B")));
+    assertThat(getNames(rule.getNodesToBeDeleted()), is(List.of("C", "D")));
+    assertThat(getNames(rule.getNodesToBeAdded()), is(List.of("E", "F")));
+    assertThat(getNames(rule.getNACNodes()), is(List.of("G", "H")));
+    assertThat(getEdges(rule.getContextEdges()), is(List.of("A -AB-> B")));
+    assertThat(getEdges(rule.getEdgesToBeDeleted()), is(List.of("C -CD-> D")));
+    assertThat(getEdges(rule.getEdgesToBeAdded()), is(List.of("E -EF-> F")));
+    assertThat(getEdges(rule.getNacEdges()), is(List.of("G -GH-> H")));
+  }
+
+  @Test
+  void readRuleWithFlagTest() {
+    GrooveGraphRule rule =
+        GrooveRuleAndGraphReader.readRule(getResource("nodeWithFlag.gpr"), new GrooveIdContext());
+
+    GrooveNode node = rule.getNodesToBeAdded().iterator().next();
+    assertThat(node.getName(), is("node"));
+    assertThat(List.copyOf(node.getFlags()), is(List.of("root")));
+  }
+
+  @Test
+  void readRuleWithDataNodeTest() {
+    Path file = getResource("ruleWithDataNode.gpr");
+    GrooveIdContext idContext = new GrooveIdContext();
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> GrooveRuleAndGraphReader.readRule(file, idContext));
+
+    assertThat(
+        exception.getMessage(),
+        is(
+            "The edge count from n0 to the data node int:5 in rule ruleWithDataNode is an"
+                + " attribute, but rules with attributes are not supported!"));
+  }
+
+  @Test
+  void readAndWriteRulesAgainTest() throws Exception {
+    Path writtenDir = Files.createTempDirectory("");
+    Path rewrittenDir = Files.createTempDirectory("");
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder(new GrooveIdContext());
+    ruleBuilder.startRule("first");
+    GrooveNode a = ruleBuilder.contextNode("A");
+    a.addFlag("flagged");
+    ruleBuilder.addEdge("loop", a, a);
+    ruleBuilder.deleteEdge("toB", a, ruleBuilder.deleteNode("B"));
+    ruleBuilder.buildRule();
+    ruleBuilder.startRule("second");
+    ruleBuilder.nacEdge("toD", ruleBuilder.contextNode("C"), ruleBuilder.nacNode("D"));
+    ruleBuilder.buildRule();
+    GrooveWriterOptions options = new GrooveWriterOptions().reproducible(true);
+    GrooveRuleAndGraphWriter.writeRules(writtenDir, ruleBuilder.getRules(), options);
+
+    List<GrooveGraphRule> readRules =
+        GrooveRuleAndGraphReader.readRules(writtenDir, new GrooveIdContext());
+    GrooveRuleAndGraphWriter.writeRules(rewrittenDir, readRules.stream(), options);
+
+    assertThat(
+        readRules.stream().map(GrooveGraphRule::getRuleName).toList(),
+        is(List.of("first", "second")));
+    for (String ruleFile : List.of("first.gpr", "second.gpr")) {
+      assertThat(
+          Files.readString(rewrittenDir.resolve(ruleFile)),
+          is(Files.readString(writtenDir.resolve(ruleFile))));
+    }
+  }
+
+  @Test
+  void readGraphWithAttributesTest() throws Exception {
+    Path tempDir = Files.createTempDirectory("");
+    GrooveGraphBuilder graphBuilder = new GrooveGraphBuilder(new GrooveIdContext()).name("graph");
+    GrooveNode a = graphBuilder.createNode("A");
+    a.addFlag("flagged");
+    a.addAttribute("count", 3);
+    a.addAttribute("name", "a");
+    a.addAttribute("active", true);
+    GrooveNode b = graphBuilder.createNode("B");
+    graphBuilder.addEdge("toB", a, b).addEdge("loop", b, b);
+    graphBuilder.build().write(tempDir, "graph.gst", false);
+
+    GrooveGraph graph =
+        GrooveRuleAndGraphReader.readGraph(tempDir.resolve("graph.gst"), new GrooveIdContext());
+
+    assertThat(graph.getName(), is("graph"));
+    List<GrooveNode> nodes = graph.nodes().toList();
+    assertThat(getNames(nodes), is(List.of("A", "B")));
+    assertThat(List.copyOf(nodes.get(0).getFlags()), is(List.of("flagged")));
+    assertThat(
+        getAttributes(nodes.get(0)),
+        is(Map.of("count", "int:3", "name", "string:\"a\"", "active", "bool:true")));
+    assertThat(getAttributes(nodes.get(1)), is(Map.of()));
+    assertThat(getEdges(graph.edges().toList()), is(List.of("A -toB-> B", "B -loop-> B")));
+  }
+
+  @Test
+  void readGraphWithEdgeBetweenDataNodesTest() {
+    String gxl =
+        """
+            <gxl xmlns="http://www.gupro.de/GXL/gxl-1.0.dtd">
+                <graph id="graph" role="graph" edgeids="false" edgemode="directed">
+                    <node id="n0"/>
+                    <node id="n1"/>
+                    <node id="n2"/>
+                    <edge from="n0" to="n0"><attr name="label"><string>A</string></attr></edge>
+                    <edge from="n1" to="n1"><attr name="label"><string>int:1</string></attr></edge>
+                    <edge from="n2" to="n2"><attr name="label"><string>int:2</string></attr></edge>
+                    <edge from="n0" to="n1"><attr name="label"><string>count</string></attr></edge>
+                    <edge from="n1" to="n2"><attr name="label"><string>next</string></attr></edge>
+                </graph>
+            </gxl>
+            """;
+    InputStream in = new ByteArrayInputStream(gxl.getBytes(StandardCharsets.UTF_8));
+    GrooveIdContext idContext = new GrooveIdContext();
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> GrooveRuleAndGraphReader.readGraph(in, idContext));
+
+    assertThat(
+        exception.getMessage(),
+        is(
+            "The edge next from n1 to n2 in graph graph starts at a data node, which is read as an"
+                + " attribute value!"));
+  }
+
+  private static List<String> getNames(Collection<GrooveNode> nodes) {
+    return nodes.stream().map(GrooveNode::getName).toList();
+  }
+
+  private static List<String> getEdges(Collection<GrooveEdge> edges) {
+    return edges.stream()
+        .map(
+            edge ->
+                String.format(
+                    "%s -%s-> %s",
+                    edge.getSourceNode().getName(),
+                    edge.getName(),
+                    edge.getTargetNode().getName()))
+        .toList();
+  }
+
+  private static Map<String, String> getAttributes(GrooveNode node) {
+    return node.getAttributes().entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> formatValue(entry.getValue())));
+  }
+
+  private static String formatValue(GrooveValue value) {
+    return value.getTypeName() + ":" + value.getValue();
+  }
+}
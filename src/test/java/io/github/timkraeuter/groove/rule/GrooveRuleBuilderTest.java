@@ -1,13 +1,25 @@
 package io.github.timkraeuter.groove.rule;
 
 import static io.github.timkraeuter.util.FileTestHelper.getResource;
-
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.timkraeuter.groove.ShouldNotHappenRuntimeException;
+import io.github.timkraeuter.groove.graph.GrooveEdge;
+import io.github.timkraeuter.groove.graph.GrooveGraphBuilder;
+import io.github.timkraeuter.groove.graph.GrooveIdContext;
 import io.github.timkraeuter.groove.graph.GrooveNode;
 import io.github.timkraeuter.util.FileTestHelper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -193,9 +205,334 @@ class GrooveRuleBuilderTest {
     testRuleEquals("threeRuleSynch", tempDir);
   }
 
+  @Test
+  void generateSyncedRulesInParallelTest() throws Exception {
+    Path sequentialDir = Files.createTempDirectory("");
+    Path parallelDir = Files.createTempDirectory("");
+    Map<String, Set<GrooveGraphRule>> nameToToBeSynchedRules = createToBeSynchedRules();
+    GrooveIdContext parallelContext = new GrooveIdContext();
+
+    GrooveRuleAndGraphWriter.writeRules(
+        sequentialDir,
+        GrooveRuleBuilder.createSyncedRules(nameToToBeSynchedRules, new GrooveIdContext()),
+        false);
+    GrooveRuleAndGraphWriter.writeRules(
+        parallelDir,
+        GrooveRuleBuilder.createSyncedRulesInParallel(nameToToBeSynchedRules, parallelContext),
+        false);
+
+    FileTestHelper.testDirEquals(sequentialDir, parallelDir, fileName -> false);
+    // The ids of all synced rules were reserved.
+    assertThat(parallelContext.nextNodeId(), is(300L));
+  }
+
+  @Test
+  void generateSyncedRulesLazilyTest() throws Exception {
+    Path eagerDir = Files.createTempDirectory("");
+    Path lazyDir = Files.createTempDirectory("");
+    Map<String, Set<GrooveGraphRule>> nameToToBeSynchedRules = createToBeSynchedRules();
+    GrooveIdContext lazyContext = new GrooveIdContext();
+
+    Stream<GrooveGraphRule> lazyRules =
+        GrooveRuleBuilder.createSyncedRulesLazily(nameToToBeSynchedRules, lazyContext);
+    // Nothing is created before the stream is consumed, i.e., the next node id is still 0.
+    assertThat(lazyContext.reserveNodeIds(0), is(0L));
+    GrooveRuleAndGraphWriter.writeRules(lazyDir, lazyRules, false);
+    GrooveRuleAndGraphWriter.writeRules(
+        eagerDir,
+        GrooveRuleBuilder.createSyncedRules(nameToToBeSynchedRules, new GrooveIdContext()),
+        false);
+
+    FileTestHelper.testDirEquals(eagerDir, lazyDir, fileName -> false);
+  }
+
+  @Test
+  void writeRulesThroughTest() {
+    GrooveWriterOptions options = new GrooveWriterOptions().parallelism(2);
+    GrooveInMemorySink writtenThroughSink = new GrooveInMemorySink();
+    GrooveRuleBuilder writeThroughBuilder = new GrooveRuleBuilder(new GrooveIdContext());
+    writeThroughBuilder.writeThrough(writtenThroughSink, options);
+    GrooveRuleBuilder keepingBuilder = new GrooveRuleBuilder(new GrooveIdContext());
+
+    for (GrooveRuleBuilder ruleBuilder : List.of(writeThroughBuilder, keepingBuilder)) {
+      for (int i = 0; i < 20; i++) {
+        ruleBuilder.startRule("rule" + i);
+        ruleBuilder.addEdge("edge", ruleBuilder.contextNode("s"), ruleBuilder.addNode("t" + i));
+        ruleBuilder.buildRule();
+      }
+    }
+    writeThroughBuilder.awaitWrittenRules();
+    GrooveInMemorySink keptSink = new GrooveInMemorySink();
+    GrooveRuleAndGraphWriter.writeRules(keptSink, keepingBuilder.getRules(), options);
+
+    assertThat(writeThroughBuilder.getRules().count(), is(0L));
+    assertThat(writtenThroughSink.getFiles().size(), is(20));
+    for (String fileName : keptSink.getFiles().keySet()) {
+      assertThat(
+          new String(writtenThroughSink.getFile(fileName), StandardCharsets.UTF_8),
+          is(new String(keptSink.getFile(fileName), StandardCharsets.UTF_8)));
+    }
+    // Names of written rules are still known.
+    assertThrows(IllegalArgumentException.class, () -> writeThroughBuilder.startRule("rule0"));
+  }
+
   @Test
   void generateSampleRuleLMCS2024() throws Exception {
     Path tempDir = Files.createTempDirectory("");
+    GrooveGraphRule gtRule = buildSampleRuleLMCS2024();
+
+    GrooveRuleAndGraphWriter.writeRules(tempDir, Stream.of(gtRule), true);
+
+    testRuleEquals("lmcs-rule", tempDir);
+  }
+
+  @Test
+  void generateSampleRuleLMCS2024WithStaxBackend() throws Exception {
+    Path tempDir = Files.createTempDirectory("");
+    GrooveGraphRule gtRule = buildSampleRuleLMCS2024();
+
+    GrooveRuleAndGraphWriter.writeRules(
+        tempDir,
+        Stream.of(gtRule),
+        new GrooveWriterOptions().layout(true).backend(GxlWriterBackend.STAX));
+
+    testRuleEquals("lmcs-rule", tempDir);
+  }
+
+  @Test
+  void writeWhitespaceWithStaxBackendTest() {
+    GrooveGraphBuilder graphBuilder =
+        new GrooveGraphBuilder(new GrooveIdContext()).name("start\tgraph\r\n");
+    GrooveNode a = graphBuilder.createNode("line1\r\nline2\tend");
+    GrooveNode b = graphBuilder.createNode("B");
+    graphBuilder.addEdge("a\rb", a, b);
+    GrooveInMemorySink jaxbSink = new GrooveInMemorySink();
+    GrooveInMemorySink staxSink = new GrooveInMemorySink();
+
+    GrooveRuleAndGraphWriter.writeGraph(
+        jaxbSink, "start.gst", graphBuilder.build(), new GrooveWriterOptions());
+    GrooveRuleAndGraphWriter.writeGraph(
+        staxSink,
+        "start.gst",
+        graphBuilder.build(),
+        new GrooveWriterOptions().backend(GxlWriterBackend.STAX));
+
+    String staxGraph = new String(staxSink.getFile("start.gst"), StandardCharsets.UTF_8);
+    assertThat(staxGraph, is(new String(jaxbSink.getFile("start.gst"), StandardCharsets.UTF_8)));
+    // Whitespace in attribute values and carriage returns are escaped.
+    assertTrue(staxGraph.contains("<graph id=\"start&#x9;graph&#xD;&#xA;\""));
+    assertTrue(staxGraph.contains("<string>a&#xD;b</string>"));
+  }
+
+  @Test
+  void writeRulesInParallelTest() throws Exception {
+    testWriteRulesLikeSequentially(
+        buildRulesWithDifferentShapes(), new GrooveWriterOptions().layout(true).parallelism(4));
+  }
+
+  @Test
+  void writeRulesWithConcurrentLayoutTest() throws Exception {
+    testWriteRulesLikeSequentially(
+        buildRulesWithDifferentShapes(),
+        new GrooveWriterOptions().layout(true).layoutParallelism(4));
+  }
+
+  @Test
+  void writeRulesWithLayoutCacheTest() throws Exception {
+    GrooveRuleBuilder ruleBuilder = buildRulesWithDifferentShapes();
+    GrooveLayoutCache layoutCache = new GrooveLayoutCache(30);
+
+    testWriteRulesLikeSequentially(
+        ruleBuilder, new GrooveWriterOptions().layout(true).layoutCache(layoutCache));
+    assertThat(layoutCache.size(), is(12));
+
+    // Other layout options do not reuse the cached layouts.
+    testWriteRulesLikeSequentially(
+        ruleBuilder,
+        new GrooveWriterOptions().layout(true).layoutSizeThreshold(0).layoutCache(layoutCache));
+    assertThat(layoutCache.size(), is(24));
+
+    Path cacheFile = Path.of(Files.createTempDirectory("").toString(), "layouts.bin");
+    layoutCache.save(cacheFile);
+    assertThat(GrooveLayoutCache.load(cacheFile, 30).size(), is(24));
+  }
+
+  /**
+   * Writes the rules using the options and checks that the written files are the same as when the
+   * rules are written one after another without a layout cache.
+   */
+  private static void testWriteRulesLikeSequentially(
+      GrooveRuleBuilder ruleBuilder, GrooveWriterOptions options) throws IOException {
+    Path sequentialDir = Files.createTempDirectory("");
+    GrooveRuleAndGraphWriter.writeRules(
+        sequentialDir,
+        ruleBuilder.getRules(),
+        options.copy().parallelism(1).layoutParallelism(1).layoutCache(null));
+    Path tempDir = Files.createTempDirectory("");
+
+    GrooveRuleAndGraphWriter.writeRules(tempDir, ruleBuilder.getRules(), options);
+
+    FileTestHelper.testDirEquals(sequentialDir, tempDir, fileName -> false);
+  }
+
+  /**
+   * Returns 20 rules with 12 different shapes, i.e., the rules differ in their number of nodes, the
+   * lengths of their labels, and their edges. Rules with the same shape have different labels.
+   */
+  private static GrooveRuleBuilder buildRulesWithDifferentShapes() {
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder();
+    for (int i = 0; i < 20; i++) {
+      int shape = i % 12;
+      String label = String.valueOf((char) ('A' + i)).repeat(1 + shape % 2);
+      ruleBuilder.startRule("rule" + i);
+      GrooveNode first = ruleBuilder.contextNode(label);
+      GrooveNode last = first;
+      for (int node = 1; node < 2 + shape % 3; node++) {
+        GrooveNode next = ruleBuilder.addNode(label + node);
+        ruleBuilder.addEdge(label, last, next);
+        last = next;
+      }
+      if (shape >= 6) {
+        ruleBuilder.addEdge(label, last, first);
+      }
+      ruleBuilder.buildRule();
+    }
+    return ruleBuilder;
+  }
+
+  @Test
+  void writeRulesInParallelReportsAllFailuresTest() throws Exception {
+    Path tempDir = Files.createTempDirectory("");
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder();
+    ruleBuilder.startRule("valid");
+    ruleBuilder.addNode("node");
+    ruleBuilder.buildRule();
+    // Rules in a non-existing subfolder cannot be written.
+    ruleBuilder.startRule("missing/invalid1");
+    ruleBuilder.addNode("node");
+    ruleBuilder.buildRule();
+    ruleBuilder.startRule("missing/invalid2");
+    ruleBuilder.addNode("node");
+    ruleBuilder.buildRule();
+
+    Stream<GrooveGraphRule> rules = ruleBuilder.getRules();
+    GrooveWriterOptions options = new GrooveWriterOptions().parallelism(2);
+    ShouldNotHappenRuntimeException exception =
+        assertThrows(
+            ShouldNotHappenRuntimeException.class,
+            () -> GrooveRuleAndGraphWriter.writeRules(tempDir, rules, options));
+
+    assertThat(
+        exception.getMessage(), is("Writing failed for missing/invalid1, missing/invalid2!"));
+    assertThat(exception.getSuppressed().length, is(1));
+    assertTrue(Files.exists(Path.of(tempDir.toString(), "valid.gpr")));
+  }
+
+  @Test
+  void writeRulesInParallelReportsErrorsTest() {
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder();
+    for (int i = 0; i < 10; i++) {
+      ruleBuilder.startRule("rule" + i);
+      ruleBuilder.addNode("node");
+      ruleBuilder.buildRule();
+    }
+    GrooveInMemorySink sink = new GrooveInMemorySink();
+    GrooveOutputSink failingSink =
+        (name, content) -> {
+          if (name.equals("rule3.gpr")) {
+            throw new AssertionError("Failed to write " + name);
+          }
+          sink.write(name, content);
+        };
+
+    Stream<GrooveGraphRule> rules = ruleBuilder.getRules();
+    GrooveWriterOptions options = new GrooveWriterOptions().parallelism(2);
+    ShouldNotHappenRuntimeException exception =
+        assertThrows(
+            ShouldNotHappenRuntimeException.class,
+            () -> GrooveRuleAndGraphWriter.writeRules(failingSink, rules, options));
+
+    assertThat(exception.getMessage(), is("Writing failed for rule3!"));
+    assertTrue(exception.getCause() instanceof AssertionError);
+    // The error does not stop the other rules.
+    assertThat(sink.getFiles().size(), is(9));
+  }
+
+  @Test
+  void ruleNodeLookupAndViewsTest() {
+    GrooveGraphRule rule = buildSampleRuleLMCS2024();
+
+    GrooveNode c = rule.getNodesToBeDeleted().iterator().next();
+    assertThat(rule.getNode(c.getNumericId()), is(c));
+    assertThat(rule.getNodeAspect(c.getNumericId()), is(NodeRuleAspect.DEL));
+    assertThat(rule.getNode(-1), is(nullValue()));
+    assertThat(rule.getAllNodes().size(), is(8));
+
+    Set<GrooveNode> nodesToBeAdded = rule.getNodesToBeAdded();
+    assertThrows(UnsupportedOperationException.class, nodesToBeAdded::clear);
+    // Views are live.
+    rule.addNewNode(new GrooveNode("I"));
+    assertThat(nodesToBeAdded.size(), is(3));
+    assertThat(rule.getAllNodes().size(), is(9));
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> rule.addContextNode(c));
+    assertThat(
+        exception.getMessage(),
+        is(String.format("Node %s already contained as a to-be-deleted node!", c)));
+  }
+
+  @Test
+  void ruleEdgeLookupTest() {
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder();
+    ruleBuilder.startRule("edges");
+    GrooveNode a = ruleBuilder.contextNode("A");
+    GrooveNode b = ruleBuilder.contextNode("B");
+    ruleBuilder.contextEdge("AB", a, b);
+    ruleBuilder.deleteEdge("AB", a, b);
+    ruleBuilder.addEdge("loop", b, b);
+
+    // Adding the same edge again has no effect.
+    ruleBuilder.contextEdge("AB", a, b);
+
+    GrooveGraphRule rule = ruleBuilder.buildRule();
+    assertThat(rule.getContextEdges().size(), is(1));
+    GrooveEdge delEdge = rule.getEdge(a.getNumericId(), "AB", b.getNumericId(), NodeRuleAspect.DEL);
+    assertThat(delEdge, is(rule.getEdgesToBeDeleted().iterator().next()));
+    assertThat(rule.getEdgeAspect(delEdge.getNumericId()), is(NodeRuleAspect.DEL));
+    assertThat(
+        rule.getEdge(a.getNumericId(), "AB", b.getNumericId(), NodeRuleAspect.NOT),
+        is(nullValue()));
+
+    assertThat(rule.getOutgoingEdges(a.getNumericId()).size(), is(2));
+    assertThat(rule.getIncomingEdges(a.getNumericId()).size(), is(0));
+    // Self-loops are both incoming and outgoing.
+    GrooveEdge loop = rule.getEdgesToBeAdded().iterator().next();
+    assertThat(rule.getOutgoingEdges(b.getNumericId()), is(List.of(loop)));
+    assertThat(rule.getIncomingEdges(b.getNumericId()).size(), is(3));
+  }
+
+  /** Returns 50 synced rules, which each sync two of ten rules with three nodes. */
+  private static Map<String, Set<GrooveGraphRule>> createToBeSynchedRules() {
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder(new GrooveIdContext());
+    for (int i = 0; i < 10; i++) {
+      ruleBuilder.startRule("rule" + i);
+      GrooveNode source = ruleBuilder.contextNode("s" + i);
+      ruleBuilder.addEdge("edge" + i, source, ruleBuilder.addNode("t" + i));
+      ruleBuilder.deleteEdge("loop" + i, source, source);
+      ruleBuilder.deleteNode("d" + i);
+      ruleBuilder.buildRule();
+    }
+    List<GrooveGraphRule> rules = ruleBuilder.getRules().toList();
+    Map<String, Set<GrooveGraphRule>> nameToToBeSynchedRules = new LinkedHashMap<>();
+    for (int i = 0; i < 50; i++) {
+      nameToToBeSynchedRules.put(
+          "synced" + i, Set.of(rules.get(i % 10), rules.get((i * 3 + 1) % 10)));
+    }
+    return nameToToBeSynchedRules;
+  }
+
+  private static GrooveGraphRule buildSampleRuleLMCS2024() {
     GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder();
     ruleBuilder.startRule("lmcs-rule");
     GrooveNode a = ruleBuilder.contextNode("A");
@@ -210,11 +547,7 @@ class GrooveRuleBuilderTest {
     GrooveNode g = ruleBuilder.nacNode("G");
     GrooveNode h = ruleBuilder.nacNode("H");
     ruleBuilder.nacEdge("GH", g, h);
-    GrooveGraphRule gtRule = ruleBuilder.buildRule();
-
-    GrooveRuleAndGraphWriter.writeRules(tempDir, Stream.of(gtRule), true);
-
-    testRuleEquals("lmcs-rule", tempDir);
+    return ruleBuilder.buildRule();
   }
 
   private static void testRuleEquals(String resource, Path tempDir) {
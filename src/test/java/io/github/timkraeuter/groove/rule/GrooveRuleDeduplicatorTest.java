@@ -0,0 +1,107 @@
+package io.github.timkraeuter.groove.rule;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import io.github.timkraeuter.groove.graph.GrooveIdContext;
+import io.github.timkraeuter.groove.graph.GrooveNode;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class GrooveRuleDeduplicatorTest {
+
+  @Test
+  void isomorphicRulesAreDuplicatesTest() {
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder(new GrooveIdContext());
+    ruleBuilder.startRule("original");
+    GrooveNode a = ruleBuilder.contextNode("A");
+    GrooveNode b = ruleBuilder.deleteNode("B");
+    a.addFlag("flag");
+    ruleBuilder.deleteEdge("AB", a, b);
+    ruleBuilder.addEdge("AC", a, ruleBuilder.addNode("C"));
+    GrooveGraphRule original = ruleBuilder.buildRule();
+    // Same elements, created in a different order.
+    ruleBuilder.startRule("duplicate");
+    GrooveNode otherC = ruleBuilder.addNode("C");
+    GrooveNode otherB = ruleBuilder.deleteNode("B");
+    GrooveNode otherA = ruleBuilder.contextNode("A");
+    otherA.addFlag("flag");
+    ruleBuilder.addEdge("AC", otherA, otherC);
+    ruleBuilder.deleteEdge("AB", otherA, otherB);
+    GrooveGraphRule duplicate = ruleBuilder.buildRule();
+
+    GrooveRuleDeduplicator deduplicator = new GrooveRuleDeduplicator();
+
+    assertThat(deduplicator.add(original), is(true));
+    assertThat(deduplicator.add(duplicate), is(false));
+    assertThat(deduplicator.getDuplicates(), is(Map.of("duplicate", "original")));
+  }
+
+  @Test
+  void differentRulesAreKeptTest() {
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder(new GrooveIdContext());
+    // Two A nodes pointing at two B nodes vs. one A node pointing at both B nodes.
+    ruleBuilder.startRule("twoStars");
+    ruleBuilder.contextEdge("AB", ruleBuilder.contextNode("A"), ruleBuilder.contextNode("B"));
+    ruleBuilder.contextEdge("AB", ruleBuilder.contextNode("A"), ruleBuilder.contextNode("B"));
+    ruleBuilder.buildRule();
+    ruleBuilder.startRule("oneStar");
+    GrooveNode a = ruleBuilder.contextNode("A");
+    ruleBuilder.contextNode("A");
+    ruleBuilder.contextEdge("AB", a, ruleBuilder.contextNode("B"));
+    ruleBuilder.contextEdge("AB", a, ruleBuilder.contextNode("B"));
+    ruleBuilder.buildRule();
+    // Same structure as the first rule but with a different aspect.
+    ruleBuilder.startRule("deleting");
+    ruleBuilder.contextEdge("AB", ruleBuilder.contextNode("A"), ruleBuilder.contextNode("B"));
+    ruleBuilder.deleteEdge("AB", ruleBuilder.contextNode("A"), ruleBuilder.contextNode("B"));
+    ruleBuilder.buildRule();
+
+    GrooveRuleDeduplicator deduplicator = new GrooveRuleDeduplicator();
+
+    assertThat(
+        deduplicator.deduplicate(ruleBuilder.getRules()).map(GrooveGraphRule::getRuleName).toList(),
+        is(List.of("twoStars", "oneStar", "deleting")));
+    assertThat(deduplicator.getDuplicates(), is(Map.of()));
+  }
+
+  @Test
+  void writeRulesWithoutDuplicatesTest() {
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder(new GrooveIdContext());
+    for (String ruleName : List.of("first", "second", "third")) {
+      ruleBuilder.startRule(ruleName);
+      ruleBuilder.addEdge("AB", ruleBuilder.contextNode("A"), ruleBuilder.addNode("B"));
+      ruleBuilder.buildRule();
+    }
+    GrooveRuleDeduplicator deduplicator = new GrooveRuleDeduplicator();
+    GrooveInMemorySink sink = new GrooveInMemorySink();
+
+    GrooveRuleAndGraphWriter.writeRules(
+        sink, ruleBuilder.getRules(), new GrooveWriterOptions().ruleDeduplicator(deduplicator));
+
+    assertThat(List.copyOf(sink.getFiles().keySet()), is(List.of("first.gpr")));
+    assertThat(deduplicator.getDuplicates(), is(Map.of("second", "first", "third", "first")));
+  }
+
+  @Test
+  void writeRulesTwiceWithOneDeduplicatorTest() {
+    GrooveRuleBuilder ruleBuilder = new GrooveRuleBuilder(new GrooveIdContext());
+    for (String ruleName : List.of("first", "second")) {
+      ruleBuilder.startRule(ruleName);
+      ruleBuilder.addNode("A");
+      ruleBuilder.buildRule();
+    }
+    GrooveRuleDeduplicator deduplicator = new GrooveRuleDeduplicator();
+    GrooveWriterOptions options = new GrooveWriterOptions().ruleDeduplicator(deduplicator);
+    GrooveInMemorySink firstSink = new GrooveInMemorySink();
+    GrooveInMemorySink secondSink = new GrooveInMemorySink();
+
+    GrooveRuleAndGraphWriter.writeRules(firstSink, ruleBuilder.getRules(), options);
+    GrooveRuleAndGraphWriter.writeRules(secondSink, ruleBuilder.getRules(), options);
+
+    // The kept rule is not a duplicate of itself from the first write.
+    assertThat(List.copyOf(secondSink.getFiles().keySet()), is(List.of("first.gpr")));
+    assertThat(deduplicator.getDuplicates(), is(Map.of("second", "first")));
+  }
+}
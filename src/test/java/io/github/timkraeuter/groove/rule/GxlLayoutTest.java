@@ -0,0 +1,45 @@
+package io.github.timkraeuter.groove.rule;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class GxlLayoutTest {
+  private static final int COMPONENTS = 2000;
+  private static final int NODES_PER_COMPONENT = 25;
+
+  @Test
+  void layoutComponentsWithinTimeBudgetTest() {
+    GxlLayout layout = new GxlLayout();
+    for (int component = 0; component < COMPONENTS; component++) {
+      long firstId = (long) component * NODES_PER_COMPONENT;
+      for (int node = 0; node < NODES_PER_COMPONENT; node++) {
+        layout.node(firstId + node, "node");
+        if (node > 0) {
+          layout.edge(firstId + node - 1, firstId + node, "next");
+        }
+        if (node > 1) {
+          layout.edge(firstId + node - 2, firstId + node, "skip");
+        }
+      }
+    }
+    GrooveWriterOptions options =
+        new GrooveWriterOptions()
+            .layoutComponentsSeparately(true)
+            .layoutTimeBudget(Duration.ofMillis(100));
+
+    long start = System.nanoTime();
+    layout.compute(options);
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+    // The budget is shared by all components, i.e., most of them get the grid layout.
+    assertTrue(
+        elapsed.compareTo(Duration.ofSeconds(3)) < 0,
+        String.format("Layouting the components took %s!", elapsed));
+    for (long id = 0; id < (long) COMPONENTS * NODES_PER_COMPONENT; id++) {
+      assertNotNull(layout.getLayout(id));
+    }
+  }
+}
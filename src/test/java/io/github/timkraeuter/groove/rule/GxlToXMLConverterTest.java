@@ -5,11 +5,55 @@ import static org.hamcrest.MatcherAssert.assertThat;
 
 import io.github.timkraeuter.groove.gxl.Graph;
 import io.github.timkraeuter.groove.gxl.Gxl;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Test;
 
 class GxlToXMLConverterTest {
+  private static final String EXPECTED_GXL =
+      """
+          <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+          <gxl xmlns="http://www.gupro.de/GXL/gxl-1.0.dtd">
+              <graph id="addNodesWithEdge" role="rule" edgeids="false" edgemode="directed"/>
+          </gxl>
+          """;
+
   @Test
   void test() {
+    String gxlString = GxlToXMLConverter.toXml(createGxl());
+    assertThat(gxlString, is(EXPECTED_GXL));
+  }
+
+  @Test
+  void compactTest() {
+    String gxlString = GxlToXMLConverter.toXml(createGxl(), GxlOutputFormat.COMPACT);
+    assertThat(
+        gxlString,
+        is(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<gxl xmlns=\"http://www.gupro.de/GXL/gxl-1.0.dtd\">"
+                + "<graph id=\"addNodesWithEdge\" role=\"rule\""
+                + " edgeids=\"false\" edgemode=\"directed\"/>"
+                + "</gxl>"));
+    // The format of the reused marshaller is reset.
+    assertThat(GxlToXMLConverter.toXml(createGxl()), is(EXPECTED_GXL));
+  }
+
+  @Test
+  void warmUpAndConvertInOtherThreadTest() throws Exception {
+    GrooveRuleAndGraphWriter.warmUp();
+    assertThat(GxlToXMLConverter.toXml(createGxl()), is(EXPECTED_GXL));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      String gxlString = executor.submit(() -> GxlToXMLConverter.toXml(createGxl())).get();
+      assertThat(gxlString, is(EXPECTED_GXL));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static Gxl createGxl() {
     Gxl gxl = new Gxl();
     Graph graph = new Graph();
     gxl.getGraph().add(graph);
@@ -17,15 +61,6 @@ class GxlToXMLConverterTest {
     graph.setEdgeids("false");
     graph.setEdgemode("directed");
     graph.setId("addNodesWithEdge");
-    String gxlString = GxlToXMLConverter.toXml(gxl);
-    assertThat(
-        gxlString,
-        is(
-            """
-                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
-                <gxl xmlns="http://www.gupro.de/GXL/gxl-1.0.dtd">
-                    <graph id="addNodesWithEdge" role="rule" edgeids="false" edgemode="directed"/>
-                </gxl>
-                """));
+    return gxl;
   }
 }